@@ -0,0 +1,98 @@
+package com.zagsoft.polls.payload;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.zagsoft.polls.user.UserSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writing a full feed page in each format the API can negotiate. The size of the
+ * page in bytes is printed once per format, compare it with the JSON one.
+ */
+@State(Scope.Benchmark)
+public class PollPageSerializationBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param({"50"})
+    public int pollsPerPage;
+
+    @Param({"6"})
+    public int choicesPerPoll;
+
+    private ObjectMapper objectMapper;
+    private PagedResponse<PollResponse> page;
+    private ByteArrayOutputStream out;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Same settings as the application (see application.properties)
+        objectMapper = new ObjectMapper(factory(format));
+        Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .configure(objectMapper);
+
+        UserSummary creator = new UserSummary(1L, "creator", "Creator");
+        List<PollResponse> polls = new ArrayList<>(pollsPerPage);
+        long choiceId = 1;
+        for (long pollId = 1; pollId <= pollsPerPage; pollId++) {
+            List<ChoiceResponse> choices = new ArrayList<>(choicesPerPoll);
+            long totalVotes = 0;
+            for (int i = 0; i < choicesPerPoll; i++, choiceId++) {
+                choices.add(new ChoiceResponse(choiceId, "Choice " + i, choiceId * 7));
+                totalVotes += choiceId * 7;
+            }
+            polls.add(PollResponse.builder()
+                    .id(pollId)
+                    .question("Question " + pollId + "?")
+                    .choices(choices)
+                    .createdBy(creator)
+                    .creationDateTime(Instant.now())
+                    .expirationDatetime(Instant.now().plus(Duration.ofDays(1)))
+                    .isExpired(false)
+                    .selectedChoice(pollId % 2 == 0 ? choiceId - 1 : null)
+                    .totalVotes(totalVotes)
+                    .build());
+        }
+        page = new PagedResponse<>(polls, 0, pollsPerPage, 1000, 1000 / pollsPerPage, false);
+
+        out = new ByteArrayOutputStream(64 * 1024);
+        System.out.println();
+        System.out.println("Page of " + pollsPerPage + " polls as " + format + ": " + serializePage() + " bytes");
+    }
+
+    @Benchmark
+    public int serializePage() throws IOException {
+        out.reset();
+        objectMapper.writeValue(out, page);
+        return out.size();
+    }
+
+    private static JsonFactory factory(String format) {
+        switch (format) {
+            case "smile":
+                return new SmileFactory();
+            case "cbor":
+                return new CBORFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.zagsoft.polls.poll;
+
+import com.zagsoft.polls.payload.PollResponse;
+import com.zagsoft.polls.payload.VoteRequest;
+import com.zagsoft.polls.security.UserPrincipal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Vote throughput. Every invocation votes as one of the users that have not voted
+ * yet, walking through the polls once all of them have voted on the current one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class CastVoteBenchmark {
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private PollService pollService;
+    private SeededDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase database) {
+        this.database = database;
+        this.pollService = database.getBean(PollService.class);
+    }
+
+    @Benchmark
+    public PollResponse castVote() {
+        return vote();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public PollResponse castVoteConcurrently() {
+        return vote();
+    }
+
+    private PollResponse vote() {
+        long n = sequence.getAndIncrement();
+        long userId = database.votesPerPoll + 1 + n % SeededDatabase.FRESH_VOTERS;
+        long pollId = 1 + (n / SeededDatabase.FRESH_VOTERS) % database.pollCount;
+        long choiceId = (pollId - 1) * SeededDatabase.CHOICES_PER_POLL + 1 + n % SeededDatabase.CHOICES_PER_POLL;
+
+        UserPrincipal voter = new UserPrincipal(userId, "User " + userId, "user" + userId,
+                "user" + userId + "@example.com", "secret", Collections.emptyList());
+        VoteRequest voteRequest = new VoteRequest();
+        voteRequest.setChoiceId(choiceId);
+
+        return pollService.castVote(pollId, voteRequest, voter);
+    }
+}
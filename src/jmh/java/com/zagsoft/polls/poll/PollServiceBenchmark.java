@@ -0,0 +1,54 @@
+package com.zagsoft.polls.poll;
+
+import com.zagsoft.polls.payload.PagedResponse;
+import com.zagsoft.polls.payload.PollResponse;
+import com.zagsoft.polls.security.UserPrincipal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+
+/**
+ * Read path of the poll feed, anonymous and for a user who voted on every poll.
+ */
+@State(Scope.Benchmark)
+public class PollServiceBenchmark {
+
+    @Param({"30"})
+    public int pageSize;
+
+    private PollService pollService;
+    private UserPrincipal voter;
+    private int pageCount;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase database) {
+        pollService = database.getBean(PollService.class);
+        voter = new UserPrincipal(1L, "User 1", "user1", "user1@example.com", "secret", Collections.emptyList());
+        pageCount = Math.max(1, database.pollCount / pageSize);
+    }
+
+    @Benchmark
+    public PagedResponse<PollResponse> firstPageAnonymous() {
+        return pollService.getAllPolls(null, 0, pageSize);
+    }
+
+    @Benchmark
+    public PagedResponse<PollResponse> firstPageAsVoter() {
+        return pollService.getAllPolls(voter, 0, pageSize);
+    }
+
+    @Benchmark
+    public PagedResponse<PollResponse> lastPageAsVoter() {
+        return pollService.getAllPolls(voter, pageCount - 1, pageSize);
+    }
+
+    @Benchmark
+    public PagedResponse<PollResponse> firstCursorPageAsVoter() {
+        return pollService.getAllPolls(voter, "", pageSize);
+    }
+}
@@ -0,0 +1,111 @@
+package com.zagsoft.polls.poll;
+
+import com.zagsoft.polls.PollsApplication;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application against an in-memory H2 database seeded with
+ * {@code pollCount} polls of {@link #CHOICES_PER_POLL} choices, each having
+ * {@code votesPerPoll} votes. Users 1..votesPerPoll cast the seeded votes, the
+ * next {@link #FRESH_VOTERS} users have not voted on anything yet.
+ */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+
+    public static final int CHOICES_PER_POLL = 4;
+    public static final int FRESH_VOTERS = 10000;
+
+    @Param({"1000"})
+    public int pollCount;
+
+    @Param({"100"})
+    public int votesPerPoll;
+
+    public ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(PollsApplication.class)
+                .properties(
+                        "server.port=0",
+                        "management.server.port=-1",
+                        "spring.datasource.url=jdbc:h2:mem:polls-benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "logging.level.root=WARN",
+                        "logging.level.org.hibernate.SQL=WARN")
+                .run();
+        seed(context.getBean(JdbcTemplate.class));
+        // Counters were warmed up before the data existed
+        context.getBean(VoteTallyEngine.class).warmUp();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public int getUserCount() {
+        return votesPerPoll + FRESH_VOTERS;
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        Timestamp now = Timestamp.from(Instant.now());
+        Timestamp expiration = Timestamp.from(Instant.now().plus(Duration.ofDays(365)));
+
+        List<Object[]> users = new ArrayList<>();
+        for (long userId = 1; userId <= getUserCount(); userId++) {
+            // User 1 created every poll, users up to votesPerPoll voted on all of them
+            long createdPolls = userId == 1 ? pollCount : 0;
+            long castVotes = userId <= votesPerPoll ? pollCount : 0;
+            users.add(new Object[]{userId, "User " + userId, "user" + userId, "user" + userId + "@example.com", "secret", now, now, createdPolls, castVotes});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, name, username, email, password, created_at, updated_at, poll_count, vote_count) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", users);
+
+        List<Object[]> polls = new ArrayList<>();
+        List<Object[]> choices = new ArrayList<>();
+        List<Object[]> votes = new ArrayList<>();
+        long voteId = 1;
+        for (long pollId = 1; pollId <= pollCount; pollId++) {
+            // Spread creation dates so that feeds have a stable order
+            Timestamp createdAt = Timestamp.from(now.toInstant().minusSeconds(pollId));
+            polls.add(new Object[]{pollId, "Question " + pollId + "?", expiration, 1L, 1L, createdAt, createdAt});
+
+            for (int choice = 0; choice < CHOICES_PER_POLL; choice++) {
+                long choiceId = (pollId - 1) * CHOICES_PER_POLL + choice + 1;
+                long voteCount = votesPerPoll / CHOICES_PER_POLL + (choice < votesPerPoll % CHOICES_PER_POLL ? 1 : 0);
+                choices.add(new Object[]{choiceId, "Choice " + choice, pollId, voteCount});
+            }
+            for (long userId = 1; userId <= votesPerPoll; userId++) {
+                long choiceId = (pollId - 1) * CHOICES_PER_POLL + (userId - 1) % CHOICES_PER_POLL + 1;
+                votes.add(new Object[]{voteId++, pollId, choiceId, userId});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO polls (id, question, expiration_date_time, created_by, updated_by, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)", polls);
+        jdbcTemplate.batchUpdate("INSERT INTO choices (id, text, poll_id, vote_count) VALUES (?, ?, ?, ?)", choices);
+        jdbcTemplate.batchUpdate("INSERT INTO votes (id, poll_id, choice_id, user_id) VALUES (?, ?, ?, ?)", votes);
+
+        // Let identity columns continue after the seeded rows
+        jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN id RESTART WITH " + (getUserCount() + 1));
+        jdbcTemplate.execute("ALTER TABLE polls ALTER COLUMN id RESTART WITH " + (pollCount + 1));
+        jdbcTemplate.execute("ALTER TABLE choices ALTER COLUMN id RESTART WITH " + (pollCount * CHOICES_PER_POLL + 1));
+        jdbcTemplate.execute("ALTER TABLE votes ALTER COLUMN id RESTART WITH " + voteId);
+    }
+}
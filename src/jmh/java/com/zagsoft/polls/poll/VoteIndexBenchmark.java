@@ -0,0 +1,88 @@
+package com.zagsoft.polls.poll;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The vote and feed queries with and without the V2 indexes. Run it with
+ * -Pjmh.include=VoteIndexBenchmark: each trial prints the plans H2 picks, then
+ * measures the queries through the repositories.
+ */
+@State(Scope.Benchmark)
+public class VoteIndexBenchmark {
+
+    private static final String[] V2_INDEXES = {
+            "ALTER TABLE votes DROP CONSTRAINT uk_votes_user_poll",
+            "DROP INDEX idx_votes_poll_choice",
+            "DROP INDEX idx_polls_created_by_created_at",
+            "DROP INDEX idx_polls_created_at_id"
+    };
+
+    private static final String[] PLANS = {
+            "EXPLAIN SELECT choice_id, COUNT(id) FROM votes WHERE poll_id IN (%s) GROUP BY choice_id",
+            "EXPLAIN SELECT poll_id, choice_id FROM votes WHERE user_id = 1 AND poll_id IN (%s)",
+            "EXPLAIN SELECT * FROM polls WHERE created_by = 1 ORDER BY created_at DESC, id DESC LIMIT 31"
+    };
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    @Param({"30"})
+    public int pageSize;
+
+    private PollRepository pollRepository;
+    private VoteRepository voteRepository;
+    private List<Long> pollIds;
+    private Pageable page;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase database) {
+        pollRepository = database.getBean(PollRepository.class);
+        voteRepository = database.getBean(VoteRepository.class);
+        page = PageRequest.of(0, pageSize);
+        pollIds = new ArrayList<>(pageSize);
+        for (long pollId = 1; pollId <= pageSize; pollId++) {
+            pollIds.add(pollId);
+        }
+
+        JdbcTemplate jdbcTemplate = database.getBean(JdbcTemplate.class);
+        if (!indexed) {
+            for (String statement : V2_INDEXES) {
+                jdbcTemplate.execute(statement);
+            }
+        }
+
+        String ids = pollIds.toString().replaceAll("[\\[\\] ]", "");
+        System.out.println();
+        System.out.println("Query plans " + (indexed ? "with" : "without") + " the V2 indexes:");
+        for (String plan : PLANS) {
+            System.out.println(jdbcTemplate.queryForObject(String.format(plan, ids), String.class));
+        }
+    }
+
+    @Benchmark
+    public List<ChoiceVoteCount> voteCountsOfPage() {
+        return voteRepository.countByPollIdInGroupByChoiceId(pollIds);
+    }
+
+    @Benchmark
+    public List<PollUserVote> userVotesOfPage() {
+        return voteRepository.findUserVotesByUserIdAndPollIdIn(1L, pollIds);
+    }
+
+    @Benchmark
+    public Slice<Poll> pollsCreatedBy() {
+        return pollRepository.findLatestByCreatedBy(1L, page);
+    }
+}
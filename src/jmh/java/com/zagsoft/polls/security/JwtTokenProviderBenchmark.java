@@ -0,0 +1,41 @@
+package com.zagsoft.polls.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+@State(Scope.Benchmark)
+public class JwtTokenProviderBenchmark {
+
+    private JwtTokenProvider tokenProvider;
+    private Authentication authentication;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret", "BenchmarkSecretKey");
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationInMs", 604800000);
+
+        UserPrincipal principal = new UserPrincipal(42L, "User 42", "user42", "user42@example.com", "secret", Collections.emptyList());
+        authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        token = tokenProvider.generateToken(authentication);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return tokenProvider.generateToken(authentication);
+    }
+
+    @Benchmark
+    public Long validateToken() {
+        return tokenProvider.getUserIdFromValidJwt(token);
+    }
+}
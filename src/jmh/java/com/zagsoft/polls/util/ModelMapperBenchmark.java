@@ -0,0 +1,141 @@
+package com.zagsoft.polls.util;
+
+import com.zagsoft.polls.payload.ChoiceResponse;
+import com.zagsoft.polls.payload.PollResponse;
+import com.zagsoft.polls.poll.Choice;
+import com.zagsoft.polls.poll.Poll;
+import com.zagsoft.polls.poll.VoteCountLookup;
+import com.zagsoft.polls.user.User;
+import com.zagsoft.polls.user.UserSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Mapping of a full page of polls, the way PollService does it for a feed page.
+ * {@link #mapPageLegacy} keeps the original stream based mapper as a baseline for
+ * the allocation rates reported by the GC profiler (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+public class ModelMapperBenchmark {
+
+    @Param({"50"})
+    public int pollsPerPage;
+
+    @Param({"6"})
+    public int choicesPerPoll;
+
+    private List<Poll> polls;
+    private Map<Long, Long> choiceVotesMap;
+    private User creator;
+    private UserSummary creatorSummary;
+    private VoteCountLookup voteCounts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        creator = new User("Creator", "creator", "creator@example.com", "secret");
+        creator.setId(1L);
+
+        polls = new ArrayList<>(pollsPerPage);
+        choiceVotesMap = new HashMap<>();
+        long choiceId = 1;
+        for (long pollId = 1; pollId <= pollsPerPage; pollId++) {
+            Poll poll = new Poll();
+            poll.setId(pollId);
+            poll.setQuestion("Question " + pollId + "?");
+            poll.setCreatedBy(creator.getId());
+            poll.setCreatedAt(Instant.now());
+            poll.setExpirationDateTime(Instant.now().plus(Duration.ofDays(1)));
+            for (int i = 0; i < choicesPerPoll; i++, choiceId++) {
+                Choice choice = new Choice("Choice " + i);
+                choice.setId(choiceId);
+                poll.addChoice(choice);
+                // Leave some choices without votes, like in real pages
+                if (choiceId % 3 != 0) {
+                    choiceVotesMap.put(choiceId, choiceId * 7);
+                }
+            }
+            polls.add(poll);
+        }
+        creatorSummary = ModelMapper.mapUserToUserSummary(creator);
+        voteCounts = id -> choiceVotesMap.getOrDefault(id, 0L);
+    }
+
+    @Benchmark
+    public void mapPage(Blackhole blackhole) {
+        for (Poll poll : polls) {
+            PollResponse response = ModelMapper.mapPollToPollResponse(poll, choiceVotesMap, creator, null);
+            blackhole.consume(response);
+        }
+    }
+
+    @Benchmark
+    public void mapPageSharedLookups(Blackhole blackhole) {
+        Instant now = Instant.now();
+        for (Poll poll : polls) {
+            PollResponse response = ModelMapper.mapPollToPollResponse(poll, voteCounts, creatorSummary, null, now);
+            blackhole.consume(response);
+        }
+    }
+
+    @Benchmark
+    public void mapPageLegacy(Blackhole blackhole) {
+        for (Poll poll : polls) {
+            PollResponse response = legacyMapPollToPollResponse(poll, choiceVotesMap, creator, null);
+            blackhole.consume(response);
+        }
+    }
+
+    // The mapper as it was before the single pass rewrite
+    private static PollResponse legacyMapPollToPollResponse(Poll poll, Map<Long, Long> choiceVotesMap, User creator, Long userVote) {
+        PollResponse pollResponse = PollResponse.builder()
+                .id(poll.getId())
+                .question(poll.getQuestion())
+                .creationDateTime(poll.getCreatedAt())
+                .expirationDatetime(poll.getExpirationDateTime())
+                .build();
+        Instant now = Instant.now();
+
+        List<ChoiceResponse> choiceResponses = poll.getChoices().stream()
+                .map(choice -> {
+                    ChoiceResponse choiceResponse = ChoiceResponse.builder()
+                            .id(choice.getId())
+                            .text(choice.getText())
+                            .build();
+                    if (choiceVotesMap.containsKey(choice.getId())) {
+                        choiceResponse.setVoteCount(choiceVotesMap.get(choice.getId()));
+                    } else {
+                        choiceResponse.setVoteCount(0);
+                    }
+                    return choiceResponse;
+                }).collect(Collectors.toList());
+
+        pollResponse.setChoices(choiceResponses);
+
+        UserSummary creatorSummary = new UserSummary(creator.getId(), creator.getUsername(), creator.getName());
+        pollResponse.setCreatedBy(creatorSummary);
+
+        if (userVote != null) {
+            pollResponse.setSelectedChoice(userVote);
+        }
+
+        long totalVotes = pollResponse.getChoices().stream()
+                .mapToLong(ChoiceResponse::getVoteCount)
+                .sum();
+        pollResponse.setTotalVotes(totalVotes);
+
+        return pollResponse;
+    }
+}
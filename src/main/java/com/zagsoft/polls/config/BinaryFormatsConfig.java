@@ -0,0 +1,42 @@
+package com.zagsoft.polls.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary encodings of every JSON payload, picked with the Accept header:
+ * application/x-jackson-smile or application/cbor. Both go through Jackson with the
+ * application's settings (dates, time zone...), so the payload classes and their
+ * annotations are the schema, the same as for JSON.
+ *
+ * Streamed pages, exports and live results are written by hand and stay JSON.
+ */
+@Configuration
+public class BinaryFormatsConfig {
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    public static final String CBOR_VALUE = "application/cbor";
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(configure(new ObjectMapper(new SmileFactory()), builder));
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(configure(new ObjectMapper(new CBORFactory()), builder));
+    }
+
+    // Applies the settings without touching the builder, which Spring Boot shares
+    private static ObjectMapper configure(ObjectMapper objectMapper, Jackson2ObjectMapperBuilder builder) {
+        builder.configure(objectMapper);
+        return objectMapper;
+    }
+}
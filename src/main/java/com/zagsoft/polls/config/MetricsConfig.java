@@ -0,0 +1,136 @@
+package com.zagsoft.polls.config;
+
+import com.zagsoft.polls.metrics.SqlStatementCountFilter;
+import com.zagsoft.polls.poll.ParallelLookups;
+import com.zagsoft.polls.poll.PollFinalizer;
+import com.zagsoft.polls.poll.PollResponseCache;
+import com.zagsoft.polls.poll.PollResultsPublisher;
+import com.zagsoft.polls.poll.VoteArchiver;
+import com.zagsoft.polls.poll.VoteInFlightGuard;
+import com.zagsoft.polls.poll.VoteIngestionPipeline;
+import com.zagsoft.polls.poll.VoteRateLimiter;
+import com.zagsoft.polls.security.PasswordHashingExecutor;
+import com.zagsoft.polls.security.UserPrincipalCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.jpa.HibernateMetrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public FilterRegistrationBean<SqlStatementCountFilter> sqlStatementCountFilter(MeterRegistry registry) {
+        FilterRegistrationBean<SqlStatementCountFilter> registration =
+                new FilterRegistrationBean<>(new SqlStatementCountFilter(registry));
+        // Outside of the security filters so that the principal lookup is counted too
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Bean
+    public MeterBinder hibernateMetrics(EntityManagerFactory entityManagerFactory) {
+        return registry -> new HibernateMetrics(entityManagerFactory, "entityManagerFactory", Collections.emptyList())
+                .bindTo(registry);
+    }
+
+    @Bean
+    public MeterBinder cacheMetrics(PollResponseCache pollResponseCache, UserPrincipalCache userPrincipalCache) {
+        return registry -> {
+            CaffeineCacheMetrics.monitor(registry, pollResponseCache.getCache(), "pollResponses");
+            CaffeineCacheMetrics.monitor(registry, userPrincipalCache.getCache(), "userPrincipals");
+        };
+    }
+
+    @Bean
+    public MeterBinder voteIngestionMetrics(VoteIngestionPipeline pipeline) {
+        return registry -> {
+            Gauge.builder("polls.votes.writeBehind.pending", pipeline, VoteIngestionPipeline::getPendingVotes)
+                    .description("Votes acknowledged but not yet written")
+                    .register(registry);
+            Gauge.builder("polls.votes.writeBehind.lag", pipeline, VoteIngestionPipeline::getFlushLagMs)
+                    .description("Age in milliseconds of the oldest vote not yet written")
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            FunctionCounter.builder("polls.votes.writeBehind.flushed", pipeline, VoteIngestionPipeline::getFlushedVotes)
+                    .register(registry);
+            FunctionCounter.builder("polls.votes.writeBehind.rejected", pipeline, VoteIngestionPipeline::getRejectedVotes)
+                    .register(registry);
+            FunctionCounter.builder("polls.votes.writeBehind.dropped", pipeline, VoteIngestionPipeline::getDroppedVotes)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder passwordHashingMetrics(PasswordHashingExecutor passwordHashing) {
+        return registry -> {
+            new ExecutorServiceMetrics(passwordHashing.getExecutor(), "passwordHashing", Collections.emptyList())
+                    .bindTo(registry);
+            FunctionCounter.builder("polls.security.passwordHashing.rejected", passwordHashing, PasswordHashingExecutor::getRejectedTasks)
+                    .description("Sign in and sign up requests refused because the hashing queue was full")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder parallelLookupsMetrics(ParallelLookups parallelLookups) {
+        return registry -> {
+            FunctionCounter.builder("polls.lookups.runs", parallelLookups, ParallelLookups::getParallelRuns)
+                    .tag("mode", "parallel")
+                    .register(registry);
+            FunctionCounter.builder("polls.lookups.runs", parallelLookups, ParallelLookups::getSequentialRuns)
+                    .tag("mode", "sequential")
+                    .register(registry);
+            FunctionCounter.builder("polls.lookups.timeouts", parallelLookups, ParallelLookups::getTimeouts)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder liveResultsMetrics(PollResultsPublisher publisher) {
+        return registry -> Gauge.builder("polls.liveResults.subscribers", publisher, PollResultsPublisher::getSubscriberCount)
+                .register(registry);
+    }
+
+    @Bean
+    public MeterBinder pollFinalizerMetrics(PollFinalizer finalizer) {
+        return registry -> Gauge.builder("polls.finalizer.pending", finalizer, PollFinalizer::getPendingPolls)
+                .register(registry);
+    }
+
+    @Bean
+    public MeterBinder voteInFlightMetrics(VoteInFlightGuard guard) {
+        return registry -> {
+            Gauge.builder("polls.votes.inFlight", guard, VoteInFlightGuard::getInFlightVotes)
+                    .register(registry);
+            FunctionCounter.builder("polls.votes.inFlight.collapsed", guard, VoteInFlightGuard::getCollapsedVotes)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder voteRateLimitMetrics(VoteRateLimiter rateLimiter) {
+        return registry -> {
+            FunctionCounter.builder("polls.votes.rateLimit.allowed", rateLimiter, VoteRateLimiter::getAllowedRequests)
+                    .register(registry);
+            FunctionCounter.builder("polls.votes.rateLimit.rejected", rateLimiter, VoteRateLimiter::getRejectedRequests)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder voteArchiverMetrics(VoteArchiver archiver) {
+        return registry -> FunctionCounter.builder("polls.votes.archived", archiver, VoteArchiver::getArchivedVotes)
+                .register(registry);
+    }
+}
@@ -0,0 +1,95 @@
+package com.zagsoft.polls.config;
+
+import com.zagsoft.polls.datasource.ReadWriteRoutingDataSource;
+import com.zagsoft.polls.datasource.ReplicaLagMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Opt-in read replica. Read-only transactions are served by the replica, writes and
+ * everything outside a transaction by the primary (spring.datasource.*). The
+ * replica is configured with app.datasource.replica.* (url, username, password,
+ * and app.datasource.replica.hikari.* for its pool). Flyway migrates the primary
+ * through the routing DataSource, outside of any read-only transaction.
+ */
+@Configuration
+@ConditionalOnProperty("app.datasource.replica.enabled")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties primaryDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.replica")
+    public DataSourceProperties replicaDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    /*
+     * The pools are built here and owned by the routing DataSource instead of being beans:
+     * a second and third DataSource bean would be resolved by Flyway and the DataSource
+     * initializer while the routing one is still being created.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(Environment environment) {
+        Binder binder = Binder.get(environment);
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(
+                pool(primaryDataSourceProperties(), binder, "spring.datasource.hikari"),
+                pool(replicaDataSourceProperties(), binder, "app.datasource.replica.hikari"));
+        routingDataSource.afterPropertiesSet();
+        // The read-only flag of a transaction is only set once it has begun, so the
+        // physical connection must not be taken before its first statement
+        return new LazyConnectionDataSourceProxy(routingDataSource) {
+            // Picked up as the destroy method of the bean, closes both pools
+            public void close() {
+                routingDataSource.close();
+            }
+        };
+    }
+
+    // Created once the routing DataSource exists (and Flyway migrated the primary through it),
+    // reads go to the primary until it is set
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(DataSource dataSource,
+                                               @Value("${app.datasource.replica.maxLagMs:5000}") long maxLagMs,
+                                               @Value("${app.datasource.replica.migrate:false}") boolean migrate) throws SQLException {
+        ReadWriteRoutingDataSource routingDataSource = dataSource.unwrap(ReadWriteRoutingDataSource.class);
+        if (migrate) {
+            // Two unrelated databases (local profile), nothing replicates the schema
+            Flyway flyway = new Flyway();
+            flyway.setDataSource(routingDataSource.getReplica());
+            flyway.migrate();
+        }
+        ReplicaLagMonitor lagMonitor =
+                new ReplicaLagMonitor(routingDataSource.getPrimary(), routingDataSource.getReplica(), maxLagMs);
+        routingDataSource.setLagMonitor(lagMonitor);
+        return lagMonitor;
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, Binder binder, String hikariPrefix) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        binder.bind(hikariPrefix, Bindable.ofInstance(pool));
+        return pool;
+    }
+}
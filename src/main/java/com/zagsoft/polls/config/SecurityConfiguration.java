@@ -1,12 +1,17 @@
 package com.zagsoft.polls.config;
 
+import com.zagsoft.polls.poll.VoteRateLimitFilter;
+import com.zagsoft.polls.poll.VoteRateLimiter;
 import com.zagsoft.polls.security.CustomUserDetailsService;
 import com.zagsoft.polls.security.JwtAuthenticationEntryPoint;
 import com.zagsoft.polls.security.JwtAuthenticationFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.BeanIds;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
@@ -32,10 +37,14 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
 
     private final JwtAuthenticationEntryPoint unauthorizedHandler;
 
+    private final VoteRateLimiter voteRateLimiter;
+
     @Autowired
-    public SecurityConfiguration(CustomUserDetailsService customUserDetailsService, JwtAuthenticationEntryPoint unauthorizedHandler) {
+    public SecurityConfiguration(CustomUserDetailsService customUserDetailsService, JwtAuthenticationEntryPoint unauthorizedHandler,
+                                 VoteRateLimiter voteRateLimiter) {
         this.customUserDetailsService = customUserDetailsService;
         this.unauthorizedHandler = unauthorizedHandler;
+        this.voteRateLimiter = voteRateLimiter;
     }
 
     @Bean
@@ -61,6 +70,18 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
         return new BCryptPasswordEncoder();
     }
 
+    // Saves new users once their password is hashed, the hashing pool only does BCrypt
+    @Bean
+    public ThreadPoolTaskExecutor signupExecutor(@Value("${app.security.signup.threads:4}") int threads,
+                                                 @Value("${app.security.signup.queueCapacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("signup-");
+        return executor;
+    }
+
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http
@@ -92,11 +113,16 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
                 .permitAll()
                 .antMatchers(HttpMethod.GET, "/polls/**", "/users/**")
                 .permitAll()
+                // Only exposed on the local management port
+                .requestMatchers(EndpointRequest.toAnyEndpoint())
+                .permitAll()
                 .anyRequest()
                 .authenticated();
 
         // Add our custom JWT security filter
         http.addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
+        // Not a bean, it only runs in the security chain once the user is known
+        http.addFilterAfter(new VoteRateLimitFilter(voteRateLimiter), JwtAuthenticationFilter.class);
     }
 }
 
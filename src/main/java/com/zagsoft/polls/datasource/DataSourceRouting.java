@@ -0,0 +1,45 @@
+package com.zagsoft.polls.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Per thread routing hints for {@link ReadWriteRoutingDataSource}. Read-only
+ * transactions go to the replica unless the current work was pinned to the primary,
+ * e.g. to let users read their own writes.
+ */
+public final class DataSourceRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    private DataSourceRouting() {
+    }
+
+    public static void forcePrimary() {
+        PRIMARY_FORCED.set(Boolean.TRUE);
+    }
+
+    public static boolean isPrimaryForced() {
+        return PRIMARY_FORCED.get() != null;
+    }
+
+    public static void clear() {
+        PRIMARY_FORCED.remove();
+    }
+
+    /**
+     * Carries the routing of the calling thread over to the thread that will run the task.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        if (!isPrimaryForced()) {
+            return task;
+        }
+        return () -> {
+            forcePrimary();
+            try {
+                return task.get();
+            } finally {
+                clear();
+            }
+        };
+    }
+}
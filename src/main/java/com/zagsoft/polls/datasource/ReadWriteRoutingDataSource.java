@@ -0,0 +1,67 @@
+package com.zagsoft.polls.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the primary.
+ * Must sit behind a LazyConnectionDataSourceProxy: the transaction's read-only flag
+ * is only known once it has started, after the connection would normally be taken.
+ *
+ * Owns both pools, they are not beans so that nothing picks them up as the
+ * application's DataSource. Reads stay on the primary until a lag monitor is set.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+
+    private volatile ReplicaLagMonitor lagMonitor;
+
+    public ReadWriteRoutingDataSource(HikariDataSource primary, HikariDataSource replica) {
+        this.primary = primary;
+        this.replica = replica;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    public HikariDataSource getPrimary() {
+        return primary;
+    }
+
+    public HikariDataSource getReplica() {
+        return replica;
+    }
+
+    public void setLagMonitor(ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        ReplicaLagMonitor monitor = lagMonitor;
+        boolean replicaRead = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !DataSourceRouting.isPrimaryForced()
+                && monitor != null
+                && monitor.isReplicaUsable();
+        return replicaRead ? Route.REPLICA : Route.PRIMARY;
+    }
+
+    @Override
+    public void close() {
+        replica.close();
+        primary.close();
+    }
+}
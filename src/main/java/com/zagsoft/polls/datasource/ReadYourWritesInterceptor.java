@@ -0,0 +1,68 @@
+package com.zagsoft.polls.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zagsoft.polls.security.UserPrincipal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pins requests to the primary when they may read data that is not on the replica
+ * yet: every write request (they also read what they are about to change), and for
+ * a few seconds after it every request of the user who made it.
+ */
+@Component
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+    private final Cache<Long, Boolean> recentWriters;
+
+    public ReadYourWritesInterceptor(@Value("${app.datasource.replica.stickinessMs:5000}") long stickinessMs,
+                                     @Value("${app.datasource.replica.maxStickyUsers:100000}") long maxStickyUsers) {
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(maxStickyUsers)
+                .expireAfterWrite(stickinessMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Long userId = currentUserId();
+        if (isWrite(request) || (userId != null && recentWriters.getIfPresent(userId) != null)) {
+            DataSourceRouting.forcePrimary();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        DataSourceRouting.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        DataSourceRouting.clear();
+        Long userId = currentUserId();
+        if (isWrite(request) && userId != null && ex == null && response.getStatus() < 400) {
+            recentWriters.put(userId, Boolean.TRUE);
+        }
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod());
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserPrincipal)) {
+            return null;
+        }
+        return ((UserPrincipal) authentication.getPrincipal()).getId();
+    }
+}
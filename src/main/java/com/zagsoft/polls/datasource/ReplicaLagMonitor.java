@@ -0,0 +1,68 @@
+package com.zagsoft.polls.datasource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Measures replication lag with a heartbeat: the time is written to the primary and
+ * read back from the replica. While the lag is above the limit, or the replica can't
+ * be reached, reads are sent to the primary. A limit of 0 turns the check off.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LogManager.getLogger(ReplicaLagMonitor.class);
+
+    private static final String WRITE_HEARTBEAT = "UPDATE replication_heartbeat SET beat_at = ? WHERE id = 1";
+
+    private static final String READ_HEARTBEAT = "SELECT beat_at FROM replication_heartbeat WHERE id = 1";
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMs;
+
+    // Reads stay on the primary until the first heartbeat made it through
+    private volatile boolean replicaUsable;
+    private volatile long lagMs = -1;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, long maxLagMs) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.maxLagMs = maxLagMs;
+        this.replicaUsable = maxLagMs <= 0;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.heartbeatIntervalMs:1000}")
+    public void heartbeat() {
+        if (maxLagMs <= 0) {
+            return;
+        }
+        boolean usable;
+        try {
+            primary.update(WRITE_HEARTBEAT, System.currentTimeMillis());
+            Long beatAt = replica.queryForObject(READ_HEARTBEAT, Long.class);
+            lagMs = System.currentTimeMillis() - beatAt;
+            usable = lagMs <= maxLagMs;
+        } catch (DataAccessException e) {
+            logger.warn("Could not measure replication lag: {}", e.getMessage());
+            usable = false;
+        }
+        if (usable != replicaUsable) {
+            logger.warn(usable ? "Replica caught up, lag {} ms, reading from it again"
+                    : "Replica lagging by {} ms or unreachable, reading from the primary", lagMs);
+        }
+        replicaUsable = usable;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    public long getLagMs() {
+        return lagMs;
+    }
+}
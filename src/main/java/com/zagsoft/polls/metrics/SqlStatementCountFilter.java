@@ -0,0 +1,42 @@
+package com.zagsoft.polls.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Records how many SQL statements each request issued on the request thread, tagged
+ * with the matched URI template. Work done on async threads (streamed bodies, SSE)
+ * is not counted.
+ */
+public class SqlStatementCountFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry registry;
+
+    public SqlStatementCountFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        SqlStatementCounter.reset();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("polls.http.sql.statements")
+                    .description("SQL statements issued per request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                    .register(registry)
+                    .record(SqlStatementCounter.get());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.zagsoft.polls.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread. Registered
+ * through hibernate.session_factory.statement_inspector, so it is instantiated by
+ * Hibernate and keeps its state in a thread local.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    public static long get() {
+        return COUNT.get()[0];
+    }
+}
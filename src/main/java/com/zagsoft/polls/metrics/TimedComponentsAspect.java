@@ -0,0 +1,57 @@
+package com.zagsoft.polls.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every call to the poll service and to the poll and vote repositories, tagged
+ * with the class and method so that the queries behind a page can be told apart.
+ */
+@Aspect
+@Component
+public class TimedComponentsAspect {
+
+    private final MeterRegistry registry;
+
+    @Autowired
+    public TimedComponentsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * com.zagsoft.polls.poll.PollService.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("polls.service", "PollService", joinPoint);
+    }
+
+    // Repositories are JDK proxies, match on the proxied interface
+    @Around("this(com.zagsoft.polls.poll.PollRepository)")
+    public Object timePollRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("polls.repository", "PollRepository", joinPoint);
+    }
+
+    @Around("this(com.zagsoft.polls.poll.VoteRepository)")
+    public Object timeVoteRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("polls.repository", "VoteRepository", joinPoint);
+    }
+
+    private Object time(String name, String type, ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "success";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(registry.timer(name,
+                    "class", type,
+                    "method", joinPoint.getSignature().getName(),
+                    "outcome", outcome));
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package com.zagsoft.polls.payload;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 
 @Getter
 @Setter
-@Builder
+@Builder(toBuilder = true)
+@AllArgsConstructor
 public class ChoiceResponse {
     private long id;
     private String text;
@@ -1,5 +1,6 @@
 package com.zagsoft.polls.payload;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -13,7 +14,23 @@ public class PagedResponse<T> {
     private List<T> content;
     private int page;
     private int size;
-    private long totalElements;
-    private int totalPages;
+
+    // Not computed for cursor pages, that would take a COUNT over the whole table
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long totalElements;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer totalPages;
+
     private boolean last;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
+    public PagedResponse(List<T> content, int page, int size, long totalElements, int totalPages, boolean last) {
+        this(content, page, size, totalElements, totalPages, last, null);
+    }
+
+    public static <T> PagedResponse<T> ofCursor(List<T> content, int size, boolean last, String nextCursor) {
+        return new PagedResponse<>(content, 0, size, null, null, last, nextCursor);
+    }
 }
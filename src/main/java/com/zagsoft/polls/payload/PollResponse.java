@@ -11,7 +11,7 @@ import java.util.List;
 
 @Getter
 @Setter
-@Builder
+@Builder(toBuilder = true)
 public class PollResponse {
     private Long id;
     private String question;
@@ -21,6 +21,10 @@ public class PollResponse {
     private Instant expirationDatetime;
     private Boolean isExpired;
 
+    // Set once the results are final
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Instant closedDateTime;
+
     @JsonInclude(JsonInclude.Include.NON_NULL)
     private Long selectedChoice;
     private Long totalVotes;
@@ -0,0 +1,19 @@
+package com.zagsoft.polls.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Frame of the live results stream. The first frame ("snapshot") carries the vote
+ * count of every choice, the following ones ("delta") only the choices that
+ * received votes since the previous frame, with the number of new votes.
+ */
+@Getter
+@AllArgsConstructor
+public class PollResultsUpdate {
+    private Long pollId;
+    private Map<Long, Long> choices;
+    private long totalVotes;
+}
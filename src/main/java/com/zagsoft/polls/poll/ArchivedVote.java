@@ -0,0 +1,39 @@
+package com.zagsoft.polls.poll;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+/**
+ * Vote of a closed poll, moved out of the votes table by the {@link VoteArchiver}.
+ * Only what reads still need is kept: which choice the user picked. The counts
+ * are final and stored with the choices.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@IdClass(ArchivedVote.Key.class)
+@Table(name = "vote_archive")
+public class ArchivedVote {
+    @Id
+    private Long pollId;
+
+    @Id
+    private Long userId;
+
+    private Long choiceId;
+
+    @Getter
+    @NoArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long pollId;
+        private Long userId;
+    }
+}
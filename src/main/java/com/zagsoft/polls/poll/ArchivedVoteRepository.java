@@ -0,0 +1,15 @@
+package com.zagsoft.polls.poll;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ArchivedVoteRepository extends JpaRepository<ArchivedVote, ArchivedVote.Key> {
+    @Query("SELECT NEW com.zagsoft.polls.poll.PollUserVote(a.pollId, a.choiceId) FROM ArchivedVote a WHERE a.userId = :userId AND a.pollId IN :pollIds")
+    List<PollUserVote> findUserVotesByUserIdAndPollIdIn(@Param("userId") Long userId, @Param("pollIds") List<Long> pollIds);
+
+    @Query("SELECT a.choiceId FROM ArchivedVote a WHERE a.userId = :userId AND a.pollId = :pollId")
+    Long findChoiceIdByUserIdAndPollId(@Param("userId") Long userId, @Param("pollId") Long pollId);
+}
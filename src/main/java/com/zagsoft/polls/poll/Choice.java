@@ -20,6 +20,9 @@ public class Choice {
     @JoinColumn(name = "poll_id", nullable = false)
     private Poll poll;
 
+    // Denormalized, maintained in the same transaction as every vote insert
+    private long voteCount;
+
     public Choice() {}
 
     public Choice(String text) {
@@ -42,6 +45,14 @@ public class Choice {
         this.text = text;
     }
 
+    public long getVoteCount() {
+        return voteCount;
+    }
+
+    public void setVoteCount(long voteCount) {
+        this.voteCount = voteCount;
+    }
+
     public Poll getPoll() {
         return poll;
     }
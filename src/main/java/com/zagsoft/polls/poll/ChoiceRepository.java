@@ -0,0 +1,31 @@
+package com.zagsoft.polls.poll;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ChoiceRepository extends JpaRepository<Choice, Long> {
+    @Query("SELECT NEW com.zagsoft.polls.poll.ChoiceVoteCount(c.id, c.voteCount) FROM Choice c")
+    List<ChoiceVoteCount> findAllVoteCounts();
+
+    @Query("SELECT NEW com.zagsoft.polls.poll.ChoiceVoteCount(c.id, c.voteCount, c.poll.id) FROM Choice c WHERE c.poll.id IN :pollIds")
+    List<ChoiceVoteCount> findVoteCountsByPollIdIn(@Param("pollIds") List<Long> pollIds);
+
+    @Query("SELECT NEW com.zagsoft.polls.poll.ChoiceRow(c.poll.id, c.id, c.text, c.voteCount) FROM Choice c " +
+            "WHERE c.poll.id IN :pollIds ORDER BY c.id")
+    List<ChoiceRow> findRowsByPollIdIn(@Param("pollIds") List<Long> pollIds);
+
+    @Modifying
+    @Query("UPDATE Choice c SET c.voteCount = c.voteCount + 1 WHERE c.id = :choiceId")
+    int incrementVoteCount(@Param("choiceId") Long choiceId);
+
+    // Only applies if nobody voted since expectedCount was read
+    @Modifying
+    @Query("UPDATE Choice c SET c.voteCount = :actualCount WHERE c.id = :choiceId AND c.voteCount = :expectedCount")
+    int repairVoteCount(@Param("choiceId") Long choiceId,
+                        @Param("expectedCount") long expectedCount,
+                        @Param("actualCount") long actualCount);
+}
@@ -0,0 +1,31 @@
+package com.zagsoft.polls.poll;
+
+public class ChoiceRow {
+    private Long pollId;
+    private Long choiceId;
+    private String text;
+    private long voteCount;
+
+    public ChoiceRow(Long pollId, Long choiceId, String text, long voteCount) {
+        this.pollId = pollId;
+        this.choiceId = choiceId;
+        this.text = text;
+        this.voteCount = voteCount;
+    }
+
+    public Long getPollId() {
+        return pollId;
+    }
+
+    public Long getChoiceId() {
+        return choiceId;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public long getVoteCount() {
+        return voteCount;
+    }
+}
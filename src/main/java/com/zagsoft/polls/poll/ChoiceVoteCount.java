@@ -3,12 +3,18 @@ package com.zagsoft.polls.poll;
 public class ChoiceVoteCount {
     private Long choiceId;
     private Long voteCount;
+    private Long pollId;
 
     public ChoiceVoteCount(Long choiceId, Long voteCount) {
         this.choiceId = choiceId;
         this.voteCount = voteCount;
     }
 
+    public ChoiceVoteCount(Long choiceId, Long voteCount, Long pollId) {
+        this(choiceId, voteCount);
+        this.pollId = pollId;
+    }
+
     public Long getChoiceId() {
         return choiceId;
     }
@@ -24,4 +30,12 @@ public class ChoiceVoteCount {
     public void setVoteCount(Long voteCount) {
         this.voteCount = voteCount;
     }
+
+    public Long getPollId() {
+        return pollId;
+    }
+
+    public void setPollId(Long pollId) {
+        this.pollId = pollId;
+    }
 }
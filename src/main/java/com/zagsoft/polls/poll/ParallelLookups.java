@@ -0,0 +1,160 @@
+package com.zagsoft.polls.poll;
+
+import com.zagsoft.polls.datasource.DataSourceRouting;
+import com.zagsoft.polls.exception.ServiceUnavailableException;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Opt-in concurrent execution of two independent lookups, each needing its own
+ * database round trip. The first one runs on a small bounded pool while the
+ * calling thread runs the second, so a page costs the slowest lookup instead of
+ * their sum.
+ *
+ * Every lookup on the pool takes an extra connection, so the lookups run one after
+ * the other on the calling thread whenever the connection pool has no idle
+ * connection left or threads are waiting for one, and when the lookup pool is busy.
+ *
+ * A pool lookup running past timeoutMs is interrupted and its statements carry the
+ * same timeout (a read-only transaction with a timeout, which Spring turns into a
+ * JDBC query timeout), so an abandoned lookup doesn't keep its connection busy.
+ */
+@Component
+public class ParallelLookups {
+
+    private static final Logger logger = LogManager.getLogger(ParallelLookups.class);
+
+    @Value("${app.polls.parallelLookups.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.polls.parallelLookups.threads:8}")
+    private int threads;
+
+    @Value("${app.polls.parallelLookups.timeoutMs:2000}")
+    private long timeoutMs;
+
+    @Value("${app.polls.parallelLookups.minIdleConnections:1}")
+    private int minIdleConnections;
+
+    private final DataSource dataSource;
+    private final TransactionTemplate lookupTransaction;
+
+    private final AtomicLong parallelRuns = new AtomicLong();
+    private final AtomicLong sequentialRuns = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    private ThreadPoolExecutor executor;
+    private HikariDataSource hikariDataSource;
+
+    @Autowired
+    public ParallelLookups(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.dataSource = dataSource;
+        this.lookupTransaction = new TransactionTemplate(transactionManager);
+        this.lookupTransaction.setReadOnly(true);
+    }
+
+    @PostConstruct
+    void start() throws SQLException {
+        if (!enabled) {
+            return;
+        }
+        if (dataSource.isWrapperFor(HikariDataSource.class)) {
+            hikariDataSource = dataSource.unwrap(HikariDataSource.class);
+        } else {
+            logger.warn("Connection pool is not Hikari, parallel lookups won't check it for pressure");
+        }
+        // Transaction timeouts are in seconds
+        lookupTransaction.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMs + 999)));
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads),
+                runnable -> new Thread(runnable, "poll-lookup-" + threadNumber.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public <A, B, R> R run(Supplier<A> first, Supplier<B> second, BiFunction<A, B, R> join) {
+        if (!enabled || underPressure()) {
+            return sequential(first, second, join);
+        }
+
+        // A FutureTask runs on the pool thread itself, so cancelling it interrupts the lookup
+        Supplier<A> lookup = DataSourceRouting.propagate(() -> lookupTransaction.execute(status -> first.get()));
+        FutureTask<A> firstResult = new FutureTask<>(lookup::get);
+        try {
+            executor.execute(firstResult);
+        } catch (RejectedExecutionException e) {
+            return sequential(first, second, join);
+        }
+        parallelRuns.incrementAndGet();
+
+        B secondResult = second.get();
+        try {
+            return join.apply(firstResult.get(timeoutMs, TimeUnit.MILLISECONDS), secondResult);
+        } catch (TimeoutException e) {
+            firstResult.cancel(true);
+            timeouts.incrementAndGet();
+            throw new ServiceUnavailableException("Timed out loading polls, please retry", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while loading polls", e);
+        }
+    }
+
+    public long getParallelRuns() {
+        return parallelRuns.get();
+    }
+
+    public long getSequentialRuns() {
+        return sequentialRuns.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    private <A, B, R> R sequential(Supplier<A> first, Supplier<B> second, BiFunction<A, B, R> join) {
+        sequentialRuns.incrementAndGet();
+        return join.apply(first.get(), second.get());
+    }
+
+    private boolean underPressure() {
+        HikariPoolMXBean pool = hikariDataSource == null ? null : hikariDataSource.getHikariPoolMXBean();
+        return pool != null
+                && (pool.getIdleConnections() < minIdleConnections || pool.getThreadsAwaitingConnection() > 0);
+    }
+}
@@ -0,0 +1,38 @@
+package com.zagsoft.polls.poll;
+
+/**
+ * A validated vote waiting in the write-behind buffer.
+ */
+public class PendingVote {
+    private final Long pollId;
+    private final Long choiceId;
+    private final Long userId;
+    private final long enqueuedAt;
+
+    public PendingVote(Long pollId, Long choiceId, Long userId) {
+        this.pollId = pollId;
+        this.choiceId = choiceId;
+        this.userId = userId;
+        this.enqueuedAt = System.currentTimeMillis();
+    }
+
+    public Long getPollId() {
+        return pollId;
+    }
+
+    public Long getChoiceId() {
+        return choiceId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public long getEnqueuedAt() {
+        return enqueuedAt;
+    }
+
+    public VoteCastEvent toEvent() {
+        return new VoteCastEvent(pollId, choiceId, userId);
+    }
+}
@@ -42,6 +42,13 @@ public class Poll extends UserDateAudit {
     @NotNull
     private Instant expirationDateTime;
 
+    // Set once the results are final, see PollFinalizer
+    private Instant closedAt;
+
+    public boolean isClosed() {
+        return closedAt != null;
+    }
+
     public void addChoice(Choice choice) {
         choices.add(choice);
         choice.setPoll(this);
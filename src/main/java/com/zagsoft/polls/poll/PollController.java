@@ -1,47 +1,49 @@
 package com.zagsoft.polls.poll;
 
-import com.zagsoft.polls.exception.BadRequestException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zagsoft.polls.exception.ResourceNotFoundException;
 import com.zagsoft.polls.payload.*;
 import com.zagsoft.polls.security.CurrentUser;
 import com.zagsoft.polls.security.UserPrincipal;
-import com.zagsoft.polls.user.User;
-import com.zagsoft.polls.user.UserRepository;
 import com.zagsoft.polls.util.AppConstants;
-import com.zagsoft.polls.util.ModelMapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.net.URI;
-import java.time.Duration;
-import java.time.Instant;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.stream.Collectors;
-
-@Controller
+
+@RestController
 @RequestMapping("/polls")
 public class PollController {
 
     private PollRepository pollRepository;
-    private VoteRepository voteRepository;
-    private UserRepository userRepository;
     private PollService pollService;
+    private PollExportService pollExportService;
+    private PollResultsPublisher pollResultsPublisher;
+    private PollVersions pollVersions;
+    private ObjectMapper objectMapper;
 
     @Autowired
-    public PollController(PollRepository pollRepository, VoteRepository voteRepository, UserRepository userRepository, PollService pollService) {
+    public PollController(PollRepository pollRepository, PollService pollService, PollExportService pollExportService,
+                          PollResultsPublisher pollResultsPublisher, PollVersions pollVersions, ObjectMapper objectMapper) {
         this.pollRepository = pollRepository;
-        this.voteRepository = voteRepository;
-        this.userRepository = userRepository;
         this.pollService = pollService;
+        this.pollExportService = pollExportService;
+        this.pollResultsPublisher = pollResultsPublisher;
+        this.pollVersions = pollVersions;
+        this.objectMapper = objectMapper;
     }
 
     private static final Logger logger = LogManager.getLogger(PollController.class);
@@ -49,25 +51,59 @@ public class PollController {
     @GetMapping
     public PagedResponse<PollResponse> getPolls(@CurrentUser UserPrincipal currentUser,
                                                 @RequestParam(value = "page", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER) int page,
-                                                @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size) {
+                                                @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size,
+                                                ServletWebRequest webRequest) {
+        // Returning null after a match lets Spring answer with a 304
+        if (pollVersions.feedNotModified(webRequest, currentUser)) {
+            return null;
+        }
         return pollService.getAllPolls(currentUser, page, size);
     }
 
-    @PostMapping
-    @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<?> createPoll(@Valid @RequestBody PollRequest pollRequest) {
-        Poll poll = new Poll();
-        poll.setQuestion(pollRequest.getQuestion());
+    @GetMapping(params = {"stream=true", "!cursor"})
+    public ResponseEntity<StreamingResponseBody> streamPolls(@CurrentUser UserPrincipal currentUser,
+                                                             @RequestParam(value = "page", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER) int page,
+                                                             @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size,
+                                                             ServletWebRequest webRequest) {
+        if (pollVersions.feedNotModified(webRequest, currentUser)) {
+            return null;
+        }
+        PollPageStream polls = pollService.streamAllPolls(currentUser, page, size);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .body(out -> polls.writeTo(out, objectMapper));
+    }
 
-        pollRequest.getChoices()
-                .forEach(choiceRequest -> poll.addChoice(new Choice(choiceRequest.getText())));
+    @GetMapping(params = "cursor")
+    public PagedResponse<PollResponse> getPollsByCursor(@CurrentUser UserPrincipal currentUser,
+                                                        @RequestParam(value = "cursor") String cursor,
+                                                        @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size,
+                                                        ServletWebRequest webRequest) {
+        if (pollVersions.feedNotModified(webRequest, currentUser)) {
+            return null;
+        }
+        return pollService.getAllPolls(currentUser, cursor, size);
+    }
 
-        Instant now = Instant.now();
-        Instant expirationDateTiem = now
-                .plus(Duration.ofDays(pollRequest.getPollLength().getDays()));
-        poll.setExpirationDateTime(expirationDateTiem);
+    // Written straight to the response on the request thread, so no async timeout applies
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportPolls(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                            HttpServletResponse response) throws IOException {
+        PollExportFormat exportFormat = PollExportFormat.of(format);
+
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"polls." + exportFormat.getExtension() + "\"");
+        pollExportService.export(exportFormat, response.getOutputStream());
+    }
 
-        Poll result = pollRepository.save(poll);
+    @PostMapping
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<?> createPoll(@CurrentUser UserPrincipal currentUser,
+                                        @Valid @RequestBody PollRequest pollRequest) {
+        Poll result = pollService.createPoll(pollRequest, currentUser);
 
         URI location = ServletUriComponentsBuilder
                 .fromCurrentRequest().path("/{pollId}")
@@ -80,68 +116,26 @@ public class PollController {
 
     @GetMapping("/{pollId}")
     public PollResponse getPollById(@CurrentUser UserPrincipal currentUser,
-                                    @PathVariable Long pollId) {
-        Poll poll = pollRepository.findById(pollId)
-                .orElseThrow(() -> new ResourceNotFoundException("Poll", "id", pollId));
-
-        // Get the vote counts of every choice belonging to the current poll
-        List<ChoiceVoteCount> votes = voteRepository.countByPollIdGroupByChoiceId(pollId);
-
-        Map<Long, Long> choiceVotesMap = votes.stream()
-                .collect(Collectors.toMap(ChoiceVoteCount::getChoiceId, ChoiceVoteCount::getVoteCount));
-
-        // Retrieve poll creator details
-        User creator = userRepository.findById(poll.getCreatedBy())
-                .orElseThrow(() -> new ResourceNotFoundException("User", "id", poll.getCreatedBy()));
-
-        // Retrieve vote count by logged in user
-        Vote userVote = null;
-        if (currentUser != null) {
-            userVote = voteRepository.findByUserIdAndPollId(currentUser.getId(), pollId);
+                                    @PathVariable Long pollId,
+                                    ServletWebRequest webRequest) {
+        if (pollVersions.pollNotModified(webRequest, pollId, currentUser)) {
+            return null;
         }
+        return pollService.getPollById(pollId, currentUser);
+    }
 
-        return ModelMapper.mapPollToPollResponse(
-                poll, choiceVotesMap, creator, userVote != null ? userVote.getChoice().getId() : null);
+    @GetMapping(value = "/{pollId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPollResults(@PathVariable Long pollId) {
+        Poll poll = pollRepository.findById(pollId)
+                .orElseThrow(() -> new ResourceNotFoundException("Poll", "id", pollId));
+        return pollResultsPublisher.subscribe(poll);
     }
 
-    @PostMapping("/{pollId/votes")
+    @PostMapping("/{pollId}/votes")
     @PreAuthorize("hasRole('USER')")
-    public PollResponse castVote(@CurrentUser UserPrincipal userPrincipal,
+    public PollResponse castVote(@CurrentUser UserPrincipal currentUser,
                                  @PathVariable Long pollId,
                                  @Valid @RequestBody VoteRequest voteRequest) {
-        Poll poll = pollRepository.findById(pollId)
-                .orElseThrow(() -> new ResourceNotFoundException("Poll", "id", pollId));
-
-        if (poll.getExpirationDateTime().isBefore(Instant.now())) {
-            throw new BadRequestException("Sorry! This poll has already expired!");
-        }
-
-        User user = userRepository.getOne(userPrincipal.getId());
-
-        Choice selectedChoice = poll.getChoices().stream()
-                .filter(choice -> Objects.equals(choice.getId(), voteRequest.getChoiceId()))
-                .findAny()
-                .orElseThrow(() -> new ResourceNotFoundException("Choice", "id", voteRequest.getChoiceId()));
-
-        Vote vote = new Vote();
-        vote.setPoll(poll);
-        vote.setUser(user);
-        vote.setChoice(selectedChoice);
-        vote = voteRepository.save(vote);
-
-        //-- Vote Saved, Return the updated Poll Response now --
-
-        // Retrieve Vote Counts of every choice belonging to the current poll
-
-        List<ChoiceVoteCount> votes = voteRepository.countByPollIdGroupByChoiceId(pollId);
-
-        Map<Long, Long> choiceVotesMap = votes.stream()
-                .collect(Collectors.toMap(ChoiceVoteCount::getChoiceId, ChoiceVoteCount::getVoteCount));
-
-
-        User creator = userRepository.findById(poll.getCreatedBy())
-                .orElseThrow(() -> new ResourceNotFoundException("User", "id", poll.getCreatedBy()));
-
-        return ModelMapper.mapPollToPollResponse(poll, choiceVotesMap, creator, vote.getChoice().getId());
+        return pollService.castVote(pollId, voteRequest, currentUser);
     }
 }
@@ -0,0 +1,17 @@
+package com.zagsoft.polls.poll;
+
+/**
+ * Published when a poll is created, delivered to transactional listeners once the
+ * poll has been committed.
+ */
+public class PollCreatedEvent {
+    private final Long pollId;
+
+    public PollCreatedEvent(Long pollId) {
+        this.pollId = pollId;
+    }
+
+    public Long getPollId() {
+        return pollId;
+    }
+}
@@ -0,0 +1,59 @@
+package com.zagsoft.polls.poll;
+
+import com.zagsoft.polls.exception.BadRequestException;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Opaque position in a poll feed ordered by (createdAt, id) descending. Clients get
+ * it back as {@code nextCursor} and pass it unchanged to fetch the following page.
+ */
+public class PollCursor {
+    private final Instant createdAt;
+    private final Long id;
+
+    public PollCursor(Instant createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public static PollCursor of(Poll poll) {
+        return new PollCursor(poll.getCreatedAt(), poll.getId());
+    }
+
+    public static PollCursor of(PollRow poll) {
+        return new PollCursor(poll.getCreatedAt(), poll.getId());
+    }
+
+    /**
+     * Returns null for an empty cursor, meaning the first page.
+     */
+    public static PollCursor decode(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            Instant createdAt = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new PollCursor(createdAt, Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new BadRequestException("Invalid cursor", e);
+        }
+    }
+
+    public String encode() {
+        String value = createdAt.getEpochSecond() + ":" + createdAt.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,21 @@
+package com.zagsoft.polls.poll;
+
+import java.time.Instant;
+
+public class PollDeadline {
+    private Long pollId;
+    private Instant expirationDateTime;
+
+    public PollDeadline(Long pollId, Instant expirationDateTime) {
+        this.pollId = pollId;
+        this.expirationDateTime = expirationDateTime;
+    }
+
+    public Long getPollId() {
+        return pollId;
+    }
+
+    public Instant getExpirationDateTime() {
+        return expirationDateTime;
+    }
+}
@@ -0,0 +1,31 @@
+package com.zagsoft.polls.poll;
+
+import com.zagsoft.polls.exception.BadRequestException;
+
+public enum PollExportFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String contentType;
+
+    PollExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return name().toLowerCase();
+    }
+
+    public static PollExportFormat of(String format) {
+        for (PollExportFormat exportFormat : values()) {
+            if (exportFormat.name().equalsIgnoreCase(format)) {
+                return exportFormat;
+            }
+        }
+        throw new BadRequestException("Unsupported export format " + format);
+    }
+}
@@ -0,0 +1,161 @@
+package com.zagsoft.polls.poll;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+/**
+ * Writes every poll with its choices and vote counts, reading them through a
+ * forward-only cursor. The persistence context is cleared every few polls so the
+ * memory used stays the same whatever the size of the table.
+ */
+@Service
+public class PollExportService {
+
+    private static final Logger logger = LogManager.getLogger(PollExportService.class);
+
+    private static final int CLEAR_EVERY = 500;
+
+    private static final String EXPORT_QUERY = "SELECT p FROM Poll p JOIN FETCH p.choices c ORDER BY p.id, c.id";
+
+    private static final String CSV_HEADER =
+            "poll_id,question,created_by,created_at,expiration_date_time,choice_id,choice_text,vote_count\n";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    @Autowired
+    public PollExportService(ObjectMapper objectMapper,
+                             @Value("${app.polls.export.fetchSize:500}") int fetchSize) {
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    @Transactional(readOnly = true)
+    public void export(PollExportFormat format, OutputStream out) throws IOException {
+        long exported;
+        try (Stream<Poll> polls = streamAllWithChoices()) {
+            exported = format == PollExportFormat.CSV
+                    ? writeCsv(polls.iterator(), out)
+                    : writeNdjson(polls.iterator(), out);
+        }
+        logger.info("Exported {} polls as {}", exported, format);
+    }
+
+    // Forward-only cursor over every poll with its choices. MySQL Connector/J only honours
+    // a positive fetch size with useCursorFetch=true on the JDBC url, without it the whole
+    // result is buffered by the driver.
+    @SuppressWarnings("unchecked")
+    private Stream<Poll> streamAllWithChoices() {
+        return entityManager.createQuery(EXPORT_QUERY, Poll.class)
+                .setHint(HINT_FETCH_SIZE, fetchSize)
+                .setHint(HINT_READONLY, true)
+                .unwrap(org.hibernate.query.Query.class)
+                .stream();
+    }
+
+    private long writeNdjson(Iterator<Poll> polls, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            // One document per line, without the space Jackson puts between root values
+            generator.setRootValueSeparator(null);
+            while (polls.hasNext()) {
+                Poll poll = polls.next();
+                long totalVotes = 0;
+
+                generator.writeStartObject();
+                generator.writeNumberField("id", poll.getId());
+                generator.writeStringField("question", poll.getQuestion());
+                generator.writeObjectField("createdBy", poll.getCreatedBy());
+                generator.writeObjectField("createdAt", poll.getCreatedAt());
+                generator.writeObjectField("expirationDateTime", poll.getExpirationDateTime());
+                generator.writeArrayFieldStart("choices");
+                for (Choice choice : poll.getChoices()) {
+                    generator.writeStartObject();
+                    generator.writeNumberField("id", choice.getId());
+                    generator.writeStringField("text", choice.getText());
+                    generator.writeNumberField("voteCount", choice.getVoteCount());
+                    generator.writeEndObject();
+                    totalVotes += choice.getVoteCount();
+                }
+                generator.writeEndArray();
+                generator.writeNumberField("totalVotes", totalVotes);
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+
+                clearEvery(++count);
+            }
+        }
+        return count;
+    }
+
+    private long writeCsv(Iterator<Poll> polls, OutputStream out) throws IOException {
+        long count = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.write(CSV_HEADER);
+            while (polls.hasNext()) {
+                Poll poll = polls.next();
+                for (Choice choice : poll.getChoices()) {
+                    writer.write(String.valueOf(poll.getId()));
+                    writer.write(',');
+                    writeCsvField(writer, poll.getQuestion());
+                    writer.write(',');
+                    writer.write(String.valueOf(poll.getCreatedBy()));
+                    writer.write(',');
+                    writer.write(String.valueOf(poll.getCreatedAt()));
+                    writer.write(',');
+                    writer.write(String.valueOf(poll.getExpirationDateTime()));
+                    writer.write(',');
+                    writer.write(String.valueOf(choice.getId()));
+                    writer.write(',');
+                    writeCsvField(writer, choice.getText());
+                    writer.write(',');
+                    writer.write(String.valueOf(choice.getVoteCount()));
+                    writer.write('\n');
+                }
+
+                clearEvery(++count);
+            }
+        }
+        return count;
+    }
+
+    private void clearEvery(long count) {
+        // Nothing is written back, dropping the managed polls keeps the session small
+        if (count % CLEAR_EVERY == 0) {
+            entityManager.clear();
+        }
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
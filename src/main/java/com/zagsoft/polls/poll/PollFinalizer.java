@@ -0,0 +1,153 @@
+package com.zagsoft.polls.poll;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Closes polls at their deadline. Every lookahead period the open polls expiring
+ * within the next period are loaded and one task per poll is put on the scheduler,
+ * due when the poll expires plus a grace period for votes still being written.
+ *
+ * Finalizing recounts the votes of the poll once, stores the exact counts in the
+ * choices and marks the poll closed. Closed polls are then read from the stored
+ * counts, cached without expiry and skipped by the vote reconciler.
+ */
+@Component
+public class PollFinalizer {
+
+    private static final Logger logger = LogManager.getLogger(PollFinalizer.class);
+
+    @Value("${app.polls.finalizer.graceMs:30000}")
+    private long graceMs;
+
+    @Value("${app.polls.finalizer.lookaheadMs:3600000}")
+    private long lookaheadMs;
+
+    @Value("${app.polls.finalizer.chunkSize:500}")
+    private int chunkSize;
+
+    private final PollRepository pollRepository;
+    private final VoteRepository voteRepository;
+    private final ChoiceRepository choiceRepository;
+    private final VoteTallyEngine voteTallyEngine;
+    private final PollResponseCache pollResponseCache;
+    private final PollVersions pollVersions;
+    private final PollResultsPublisher pollResultsPublisher;
+    private final TaskScheduler taskScheduler;
+    private final TransactionTemplate transactionTemplate;
+
+    // Polls with a pending finalization task, so that a scan never schedules one twice
+    private final Set<Long> scheduledPolls = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public PollFinalizer(PollRepository pollRepository,
+                         VoteRepository voteRepository,
+                         ChoiceRepository choiceRepository,
+                         VoteTallyEngine voteTallyEngine,
+                         PollResponseCache pollResponseCache,
+                         PollVersions pollVersions,
+                         PollResultsPublisher pollResultsPublisher,
+                         TaskScheduler taskScheduler,
+                         PlatformTransactionManager transactionManager) {
+        this.pollRepository = pollRepository;
+        this.voteRepository = voteRepository;
+        this.choiceRepository = choiceRepository;
+        this.voteTallyEngine = voteTallyEngine;
+        this.pollResponseCache = pollResponseCache;
+        this.pollVersions = pollVersions;
+        this.pollResultsPublisher = pollResultsPublisher;
+        this.taskScheduler = taskScheduler;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Also picks up polls that expired while the application was down, they are finalized right away
+    @Scheduled(fixedDelayString = "${app.polls.finalizer.lookaheadMs:3600000}")
+    public void scheduleUpcoming() {
+        Instant horizon = Instant.now().plusMillis(lookaheadMs);
+        int scheduled = 0;
+        Long lastPollId = 0L;
+        List<PollDeadline> deadlines;
+        do {
+            deadlines = pollRepository.findOpenDeadlinesBefore(horizon, lastPollId, PageRequest.of(0, chunkSize));
+            for (PollDeadline deadline : deadlines) {
+                Long pollId = deadline.getPollId();
+                if (scheduledPolls.add(pollId)) {
+                    Instant dueAt = deadline.getExpirationDateTime().plusMillis(graceMs);
+                    taskScheduler.schedule(() -> finalizePoll(pollId), Date.from(dueAt));
+                    scheduled++;
+                }
+                lastPollId = pollId;
+            }
+        } while (deadlines.size() == chunkSize);
+
+        logger.info("{} polls scheduled for finalization, {} pending", scheduled, scheduledPolls.size());
+    }
+
+    /**
+     * Returns false when the poll was already closed, e.g. by another instance.
+     */
+    public boolean finalizePoll(Long pollId) {
+        try {
+            Map<Long, Long> corrections = transactionTemplate.execute(status -> close(pollId));
+            if (corrections == null) {
+                return false;
+            }
+            corrections.forEach(voteTallyEngine::adjust);
+            pollResponseCache.invalidate(pollId);
+            pollVersions.pollChanged(pollId);
+            pollResultsPublisher.markDirty(pollId);
+            logger.debug("Poll {} closed, {} choices recounted", pollId, corrections.size());
+            return true;
+        } catch (RuntimeException e) {
+            // The poll is still open, the next scan schedules it again
+            logger.error("Could not finalize poll {}", pollId, e);
+            return false;
+        } finally {
+            scheduledPolls.remove(pollId);
+        }
+    }
+
+    public int getPendingPolls() {
+        return scheduledPolls.size();
+    }
+
+    private Map<Long, Long> close(Long pollId) {
+        // Taking the row first makes concurrent finalizations of the same poll wait, then give up
+        if (pollRepository.close(pollId, Instant.now()) == 0) {
+            return null;
+        }
+
+        List<Long> pollIds = Collections.singletonList(pollId);
+        Map<Long, Long> actualCounts = new HashMap<>();
+        for (ChoiceVoteCount count : voteRepository.countByPollIdInGroupByChoiceId(pollIds)) {
+            actualCounts.put(count.getChoiceId(), count.getVoteCount());
+        }
+
+        Map<Long, Long> corrections = new HashMap<>();
+        for (ChoiceVoteCount stored : choiceRepository.findVoteCountsByPollIdIn(pollIds)) {
+            long actual = actualCounts.getOrDefault(stored.getChoiceId(), 0L);
+            if (stored.getVoteCount() != actual
+                    && choiceRepository.repairVoteCount(stored.getChoiceId(), stored.getVoteCount(), actual) > 0) {
+                corrections.put(stored.getChoiceId(), actual - stored.getVoteCount());
+            }
+        }
+        return corrections;
+    }
+}
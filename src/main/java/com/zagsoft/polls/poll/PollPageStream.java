@@ -0,0 +1,43 @@
+package com.zagsoft.polls.poll;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zagsoft.polls.payload.PollResponse;
+import org.springframework.data.domain.Page;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Function;
+
+/**
+ * A page of polls whose lookups are done but which is not mapped yet. Writing it
+ * maps every poll and hands it to the JSON generator straight away, producing the
+ * same document as {@link com.zagsoft.polls.payload.PagedResponse} without ever
+ * holding the list of responses.
+ */
+public class PollPageStream {
+    private final Page<Poll> polls;
+    private final Function<Poll, PollResponse> mapper;
+
+    public PollPageStream(Page<Poll> polls, Function<Poll, PollResponse> mapper) {
+        this.polls = polls;
+        this.mapper = mapper;
+    }
+
+    public void writeTo(OutputStream out, ObjectMapper objectMapper) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("content");
+            for (Poll poll : polls.getContent()) {
+                generator.writeObject(mapper.apply(poll));
+            }
+            generator.writeEndArray();
+            generator.writeNumberField("page", polls.getNumber());
+            generator.writeNumberField("size", polls.getSize());
+            generator.writeNumberField("totalElements", polls.getTotalElements());
+            generator.writeNumberField("totalPages", polls.getTotalPages());
+            generator.writeBooleanField("last", polls.isLast());
+            generator.writeEndObject();
+        }
+    }
+}
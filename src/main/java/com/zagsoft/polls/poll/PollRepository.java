@@ -1,10 +1,16 @@
 package com.zagsoft.polls.poll;
 
+import com.zagsoft.polls.user.UserCount;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,7 +21,73 @@ public interface PollRepository extends JpaRepository<Poll, Long> {
 
     long countByCreatedBy(Long userId);
 
+    @Query("SELECT NEW com.zagsoft.polls.user.UserCount(p.createdBy, count(p.id)) FROM Poll p WHERE p.createdBy IN :userIds GROUP BY p.createdBy")
+    List<UserCount> countByCreatedByInGroupByCreatedBy(@Param("userIds") List<Long> userIds);
+
     List<Poll> findByIdIn(List<Long> pollIds);
 
     List<Poll> findByIdIn(List<Long> pollIds, Sort sort);
+
+    // Keyset (cursor) pages, returned as slices so no count query is issued
+    @Query("SELECT p FROM Poll p ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Poll> findLatest(Pageable pageable);
+
+    @Query("SELECT p FROM Poll p " +
+            "WHERE p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Poll> findLatestBefore(@Param("createdAt") Instant createdAt, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT p FROM Poll p WHERE p.createdBy = :userId ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Poll> findLatestByCreatedBy(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT p FROM Poll p " +
+            "WHERE p.createdBy = :userId AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Poll> findLatestByCreatedByBefore(@Param("userId") Long userId,
+                                            @Param("createdAt") Instant createdAt,
+                                            @Param("id") Long id,
+                                            Pageable pageable);
+
+    // Projections of the poll feed, creator and current user's vote joined in (see PollRow)
+    String POLL_ROWS = "SELECT NEW com.zagsoft.polls.poll.PollRow(" +
+            "p.id, p.question, p.createdAt, p.expirationDateTime, p.closedAt, u.id, u.username, u.name, " +
+            "COALESCE(v.choice.id, a.choiceId)) " +
+            "FROM Poll p JOIN User u ON u.id = p.createdBy " +
+            "LEFT JOIN Vote v ON v.poll.id = p.id AND v.user.id = :userId " +
+            "LEFT JOIN ArchivedVote a ON a.pollId = p.id AND a.userId = :userId ";
+
+    @Query(value = POLL_ROWS + "ORDER BY p.createdAt DESC, p.id DESC",
+            countQuery = "SELECT COUNT(p) FROM Poll p")
+    Page<PollRow> findPollRows(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(POLL_ROWS + "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<PollRow> findLatestPollRows(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(POLL_ROWS +
+            "WHERE p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<PollRow> findLatestPollRowsBefore(@Param("userId") Long userId,
+                                            @Param("createdAt") Instant createdAt,
+                                            @Param("id") Long id,
+                                            Pageable pageable);
+
+    // Keyset walk over all poll ids, used by background jobs
+    @Query("SELECT p.id FROM Poll p WHERE p.id > :afterId ORDER BY p.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p.id FROM Poll p WHERE p.id > :afterId AND p.closedAt IS NULL ORDER BY p.id")
+    List<Long> findOpenIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Open polls reaching their deadline before the horizon, walked by id
+    @Query("SELECT NEW com.zagsoft.polls.poll.PollDeadline(p.id, p.expirationDateTime) FROM Poll p " +
+            "WHERE p.closedAt IS NULL AND p.expirationDateTime < :horizon AND p.id > :afterId ORDER BY p.id")
+    List<PollDeadline> findOpenDeadlinesBefore(@Param("horizon") Instant horizon,
+                                               @Param("afterId") Long afterId,
+                                               Pageable pageable);
+
+    // Only the first caller closes the poll
+    @Modifying
+    @Query("UPDATE Poll p SET p.closedAt = :closedAt WHERE p.id = :pollId AND p.closedAt IS NULL")
+    int close(@Param("pollId") Long pollId, @Param("closedAt") Instant closedAt);
+
 }
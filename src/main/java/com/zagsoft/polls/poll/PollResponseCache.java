@@ -0,0 +1,97 @@
+package com.zagsoft.polls.poll;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.zagsoft.polls.payload.ChoiceResponse;
+import com.zagsoft.polls.payload.PollResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of the user independent part of {@link PollResponse}, i.e.
+ * everything but the selected choice. Cached responses are never modified: when a
+ * vote commits the entry is replaced by a copy carrying the new counts.
+ *
+ * Responses of closed polls never change and don't expire, they only leave the
+ * cache when it is full.
+ */
+@Component
+public class PollResponseCache {
+
+    // Longest expiry Caffeine supports, about 150 years
+    private static final long NEVER = Long.MAX_VALUE >> 1;
+
+    private final VoteTallyEngine voteTallyEngine;
+
+    private final Cache<Long, PollResponse> responses;
+
+    @Autowired
+    public PollResponseCache(VoteTallyEngine voteTallyEngine,
+                             @Value("${app.polls.responseCache.maxSize:10000}") long maxSize,
+                             @Value("${app.polls.responseCache.ttlSeconds:600}") long ttlSeconds) {
+        this.voteTallyEngine = voteTallyEngine;
+        long ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<Long, PollResponse>() {
+                    @Override
+                    public long expireAfterCreate(Long pollId, PollResponse response, long currentTime) {
+                        return response.getClosedDateTime() != null ? NEVER : ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long pollId, PollResponse response, long currentTime, long currentDuration) {
+                        return expireAfterCreate(pollId, response, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long pollId, PollResponse response, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public PollResponse get(Long pollId, Function<Long, PollResponse> loader) {
+        return responses.get(pollId, loader);
+    }
+
+    public void invalidate(Long pollId) {
+        responses.invalidate(pollId);
+    }
+
+    // Before PollVersions hands out the new version
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVoteCast(VoteCastEvent event) {
+        responses.asMap().computeIfPresent(event.getPollId(), (pollId, cached) -> withCurrentCounts(cached));
+    }
+
+    public Cache<Long, PollResponse> getCache() {
+        return responses;
+    }
+
+    private PollResponse withCurrentCounts(PollResponse cached) {
+        List<ChoiceResponse> choices = new ArrayList<>(cached.getChoices().size());
+        long totalVotes = 0;
+        for (ChoiceResponse choice : cached.getChoices()) {
+            long voteCount = voteTallyEngine.getVoteCount(choice.getId());
+            choices.add(choice.toBuilder().voteCount(voteCount).build());
+            totalVotes += voteCount;
+        }
+        return cached.toBuilder()
+                .choices(choices)
+                .totalVotes(totalVotes)
+                .build();
+    }
+}
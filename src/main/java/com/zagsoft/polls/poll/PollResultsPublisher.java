@@ -0,0 +1,292 @@
+package com.zagsoft.polls.poll;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zagsoft.polls.payload.PollResultsUpdate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes live results of polls to Server-Sent Events subscribers. Committed votes
+ * only mark their poll as dirty; a single scheduled tick then builds at most one
+ * frame per dirty poll, with the count deltas since the previous frame, for all of
+ * its subscribers. No thread is held per connection.
+ *
+ * Frames are queued per subscriber and written by a small sender pool, so a slow
+ * client only ever holds up its own frames. Subscribers falling more than
+ * maxQueuedFrames behind are dropped.
+ */
+@Component
+public class PollResultsPublisher {
+
+    private static final Logger logger = LogManager.getLogger(PollResultsPublisher.class);
+
+    private static final String SNAPSHOT = "snapshot";
+    private static final String DELTA = "delta";
+
+    private final VoteTallyEngine voteTallyEngine;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.polls.liveResults.timeoutMs:1800000}")
+    private long timeoutMs;
+
+    @Value("${app.polls.liveResults.maxQueuedFrames:100}")
+    private int maxQueuedFrames;
+
+    private final ExecutorService sender;
+
+    private final ConcurrentHashMap<Long, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyPolls = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public PollResultsPublisher(VoteTallyEngine voteTallyEngine, ObjectMapper objectMapper,
+                                @Value("${app.polls.liveResults.senderThreads:4}") int senderThreads) {
+        this.voteTallyEngine = voteTallyEngine;
+        this.objectMapper = objectMapper;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads,
+                runnable -> new Thread(runnable, "live-results-" + threadNumber.incrementAndGet()));
+    }
+
+    @PreDestroy
+    void stop() {
+        sender.shutdownNow();
+    }
+
+    public SseEmitter subscribe(Poll poll) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter);
+        Long pollId = poll.getId();
+
+        while (true) {
+            Subscription subscription = subscriptions.computeIfAbsent(pollId, id -> new Subscription(poll, voteTallyEngine));
+            synchronized (subscription) {
+                // Lost a race with the last subscriber leaving, start over with a new subscription
+                if (subscription.closed) {
+                    continue;
+                }
+                subscription.subscribers.add(subscriber);
+                // Still buffered by the emitter at this point, so it always goes out before any delta
+                send(emitter, SNAPSHOT, subscription.snapshot());
+            }
+            break;
+        }
+
+        emitter.onCompletion(() -> unsubscribe(pollId, subscriber));
+        emitter.onTimeout(() -> unsubscribe(pollId, subscriber));
+        emitter.onError(e -> unsubscribe(pollId, subscriber));
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVoteCast(VoteCastEvent event) {
+        markDirty(event.getPollId());
+    }
+
+    /**
+     * Has the current counts of the poll sent on the next tick, for any change of the
+     * tallies that doesn't come with a {@link VoteCastEvent}.
+     */
+    public void markDirty(Long pollId) {
+        if (subscriptions.containsKey(pollId)) {
+            dirtyPolls.add(pollId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.polls.liveResults.intervalMs:1000}")
+    public void publish() {
+        Iterator<Long> dirty = dirtyPolls.iterator();
+        while (dirty.hasNext()) {
+            Long pollId = dirty.next();
+            dirty.remove();
+
+            Subscription subscription = subscriptions.get(pollId);
+            if (subscription == null) {
+                continue;
+            }
+
+            String frame;
+            List<Subscriber> subscribers;
+            synchronized (subscription) {
+                PollResultsUpdate delta = subscription.delta();
+                if (delta == null) {
+                    continue;
+                }
+                frame = toJson(delta);
+                subscribers = new ArrayList<>(subscription.subscribers);
+            }
+
+            for (Subscriber subscriber : subscribers) {
+                enqueue(pollId, subscriber, frame);
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        int count = 0;
+        for (Subscription subscription : subscriptions.values()) {
+            count += subscription.subscribers.size();
+        }
+        return count;
+    }
+
+    private void enqueue(Long pollId, Subscriber subscriber, String frame) {
+        if (subscriber.queuedFrames.incrementAndGet() > maxQueuedFrames) {
+            logger.debug("Dropping live results subscriber of poll {}, too far behind", pollId);
+            drop(pollId, subscriber);
+            return;
+        }
+        subscriber.frames.add(frame);
+        drain(pollId, subscriber);
+    }
+
+    // At most one sender task per subscriber, which keeps its frames in order
+    private void drain(Long pollId, Subscriber subscriber) {
+        if (!subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sender.execute(() -> {
+                String frame;
+                while ((frame = subscriber.frames.poll()) != null) {
+                    subscriber.queuedFrames.decrementAndGet();
+                    if (!sendFrame(subscriber.emitter, DELTA, frame)) {
+                        unsubscribe(pollId, subscriber);
+                        return;
+                    }
+                }
+                subscriber.draining.set(false);
+                // A frame queued after the last poll but before the flag was cleared
+                if (!subscriber.frames.isEmpty()) {
+                    drain(pollId, subscriber);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            drop(pollId, subscriber);
+        }
+    }
+
+    private void drop(Long pollId, Subscriber subscriber) {
+        unsubscribe(pollId, subscriber);
+        subscriber.emitter.complete();
+    }
+
+    private void unsubscribe(Long pollId, Subscriber subscriber) {
+        subscriptions.computeIfPresent(pollId, (id, subscription) -> {
+            synchronized (subscription) {
+                subscription.subscribers.remove(subscriber);
+                if (subscription.subscribers.isEmpty()) {
+                    subscription.closed = true;
+                    return null;
+                }
+                return subscription;
+            }
+        });
+    }
+
+    private void send(SseEmitter emitter, String name, PollResultsUpdate update) {
+        if (!sendFrame(emitter, name, toJson(update))) {
+            emitter.complete();
+        }
+    }
+
+    // Frames are serialized once and sent as-is to every subscriber
+    private boolean sendFrame(SseEmitter emitter, String name, String frame) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(frame, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Dropping live results subscriber: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private String toJson(PollResultsUpdate update) {
+        try {
+            return objectMapper.writeValueAsString(update);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize live results", e);
+        }
+    }
+
+    /**
+     * Frames waiting to be written to one client.
+     */
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final Queue<String> frames = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queuedFrames = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    /**
+     * Subscribers of one poll and the counts last sent to them. Guarded by its own monitor.
+     */
+    private static class Subscription {
+        private final Long pollId;
+        private final VoteTallyEngine voteTallyEngine;
+        private final Map<Long, Long> sentCounts = new LinkedHashMap<>();
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private boolean closed;
+
+        Subscription(Poll poll, VoteTallyEngine voteTallyEngine) {
+            this.pollId = poll.getId();
+            this.voteTallyEngine = voteTallyEngine;
+            for (Choice choice : poll.getChoices()) {
+                sentCounts.put(choice.getId(), voteTallyEngine.getVoteCount(choice.getId()));
+            }
+        }
+
+        PollResultsUpdate snapshot() {
+            return new PollResultsUpdate(pollId, new LinkedHashMap<>(sentCounts), totalVotes());
+        }
+
+        PollResultsUpdate delta() {
+            Map<Long, Long> deltas = new LinkedHashMap<>();
+            for (Map.Entry<Long, Long> sent : sentCounts.entrySet()) {
+                long current = voteTallyEngine.getVoteCount(sent.getKey());
+                if (current != sent.getValue()) {
+                    deltas.put(sent.getKey(), current - sent.getValue());
+                    sent.setValue(current);
+                }
+            }
+            return deltas.isEmpty() ? null : new PollResultsUpdate(pollId, deltas, totalVotes());
+        }
+
+        private long totalVotes() {
+            long total = 0;
+            for (long count : sentCounts.values()) {
+                total += count;
+            }
+            return total;
+        }
+    }
+}
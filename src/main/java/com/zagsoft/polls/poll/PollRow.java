@@ -0,0 +1,68 @@
+package com.zagsoft.polls.poll;
+
+import java.time.Instant;
+
+/**
+ * Flat projection of a poll with its creator and the choice the current user voted
+ * for, if any. Read without loading any entity.
+ */
+public class PollRow {
+    private Long id;
+    private String question;
+    private Instant createdAt;
+    private Instant expirationDateTime;
+    private Instant closedAt;
+    private Long creatorId;
+    private String creatorUsername;
+    private String creatorName;
+    private Long userVote;
+
+    public PollRow(Long id, String question, Instant createdAt, Instant expirationDateTime, Instant closedAt,
+                   Long creatorId, String creatorUsername, String creatorName, Long userVote) {
+        this.id = id;
+        this.question = question;
+        this.createdAt = createdAt;
+        this.expirationDateTime = expirationDateTime;
+        this.closedAt = closedAt;
+        this.creatorId = creatorId;
+        this.creatorUsername = creatorUsername;
+        this.creatorName = creatorName;
+        this.userVote = userVote;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getQuestion() {
+        return question;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getExpirationDateTime() {
+        return expirationDateTime;
+    }
+
+    public Instant getClosedAt() {
+        return closedAt;
+    }
+
+    public Long getCreatorId() {
+        return creatorId;
+    }
+
+    public String getCreatorUsername() {
+        return creatorUsername;
+    }
+
+    public String getCreatorName() {
+        return creatorName;
+    }
+
+    public Long getUserVote() {
+        return userVote;
+    }
+}
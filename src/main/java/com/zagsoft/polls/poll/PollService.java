@@ -3,24 +3,48 @@ package com.zagsoft.polls.poll;
 import com.zagsoft.polls.exception.BadRequestException;
 import com.zagsoft.polls.exception.ResourceNotFoundException;
 import com.zagsoft.polls.payload.PagedResponse;
+import com.zagsoft.polls.payload.PollRequest;
 import com.zagsoft.polls.payload.PollResponse;
+import com.zagsoft.polls.payload.VoteRequest;
 import com.zagsoft.polls.security.UserPrincipal;
 import com.zagsoft.polls.user.User;
 import com.zagsoft.polls.user.UserRepository;
+import com.zagsoft.polls.user.UserSummary;
 import com.zagsoft.polls.util.AppConstants;
 import com.zagsoft.polls.util.ModelMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -29,145 +53,515 @@ import java.util.stream.Collectors;
 public class PollService {
     private final PollRepository pollRepository;
     private final VoteRepository voteRepository;
+    private final ArchivedVoteRepository archivedVoteRepository;
     private final UserRepository userRepository;
+    private final ChoiceRepository choiceRepository;
+    private final VoteTallyEngine voteTallyEngine;
+    private final VoteIngestionPipeline voteIngestionPipeline;
+    private final PollResponseCache pollResponseCache;
+    private final ParallelLookups parallelLookups;
+    private final VoteInFlightGuard voteInFlightGuard;
+    private final TransactionTemplate voteTransaction;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Timer mappingTimer;
+
+    @Value("${app.polls.projectionReads.enabled:false}")
+    private boolean projectionReads;
 
     @Autowired
-    public PollService(PollRepository pollRepository, VoteRepository voteRepository, UserRepository userRepository) {
+    public PollService(PollRepository pollRepository, VoteRepository voteRepository,
+                       ArchivedVoteRepository archivedVoteRepository, UserRepository userRepository,
+                       ChoiceRepository choiceRepository, VoteTallyEngine voteTallyEngine, VoteIngestionPipeline voteIngestionPipeline,
+                       PollResponseCache pollResponseCache, ParallelLookups parallelLookups,
+                       VoteInFlightGuard voteInFlightGuard, PlatformTransactionManager transactionManager,
+                       ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry) {
         this.pollRepository = pollRepository;
         this.voteRepository = voteRepository;
+        this.archivedVoteRepository = archivedVoteRepository;
         this.userRepository = userRepository;
+        this.choiceRepository = choiceRepository;
+        this.voteTallyEngine = voteTallyEngine;
+        this.voteIngestionPipeline = voteIngestionPipeline;
+        this.pollResponseCache = pollResponseCache;
+        this.parallelLookups = parallelLookups;
+        this.voteInFlightGuard = voteInFlightGuard;
+        // Programmatic so that the guard wraps the whole transaction, commit included
+        this.voteTransaction = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        // ModelMapper is static and can't be advised, time it where it is called
+        this.mappingTimer = meterRegistry.timer("polls.modelMapper");
     }
 
     private static final Logger logger = LogManager.getLogger(PollService.class);
 
+    @Transactional(readOnly = true)
     public PagedResponse<PollResponse> getAllPolls(UserPrincipal currentUser, int page, int size) {
-        validatePageNumberAndSize(page, size);
+        validatePageNumberAndSize(page, size, AppConstants.MAX_PAGE_SIZE);
+
+        if (projectionReads) {
+            Page<PollRow> rows = pollRepository.findPollRows(userId(currentUser), PageRequest.of(page, size));
+            return new PagedResponse<>(
+                    mapPollRows(rows.getContent()), rows.getNumber(),
+                    rows.getSize(), rows.getTotalElements(),
+                    rows.getTotalPages(), rows.isLast());
+        }
 
-        Pageable pageable = PageRequest.of(page, size, Sort.Direction.DESC, "createdAt");
-        Page<Poll> polls = pollRepository.findAll(pageable);
+        Page<Poll> polls = findAllPolls(page, size);
+        return pagedResponse(polls, mapPolls(polls.getContent(), currentUser, null));
+    }
 
-        if (polls.getNumberOfElements() == 0) {
-            return emptyPage(polls);
-        }
+    @Transactional(readOnly = true)
+    public PagedResponse<PollResponse> getPollsCreatedBy(String username, UserPrincipal currentUser, int page, int size) {
+        validatePageNumberAndSize(page, size, AppConstants.MAX_PAGE_SIZE);
 
-        List<Long> pollIds = polls.map(Poll::getId).getContent();
-        Map<Long, Long> choiceVoteCountMap = getChoiceVoteCountMap(pollIds);
-        Map<Long, Long> pollUserVoteMap = getPollUserVoteMap(currentUser, pollIds);
-        Map<Long, User> creatorMap = getPollCreatorMap(polls.getContent());
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
 
-        List<PollResponse> pollResponses = polls.map(poll ->
-                ModelMapper.mapPollToPollResponse(
-                        poll,
-                        choiceVoteCountMap,
-                        creatorMap.get(poll.getCreatedBy()),
-                        pollUserVoteMap == null ? null : pollUserVoteMap.getOrDefault(poll.getId(), null))
-        ).getContent();
+        Page<Poll> polls = findPollsCreatedBy(user, page, size);
 
-        return new PagedResponse<>(pollResponses, polls.getNumber(), polls.getSize(), polls.getTotalElements(), polls.getTotalPages(), polls.isLast());
+        // Map Polls to PollResponses containing vote counts and poll creator details
+        return pagedResponse(polls, mapPolls(polls.getContent(), currentUser, user));
     }
 
-    public PagedResponse<PollResponse> getPollsCreatedBy(String username, UserPrincipal currentUser, int page, int size) {
-        validatePageNumberAndSize(page, size);
+    @Transactional(readOnly = true)
+    public PagedResponse<PollResponse> getPollsVotedBy(String username, UserPrincipal currentUser, int page, int size) {
+        validatePageNumberAndSize(page, size, AppConstants.MAX_PAGE_SIZE);
 
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
 
-        Pageable pageable = PageRequest.of(page, size, Sort.Direction.DESC, "createdAt");
-        Page<Poll> polls = pollRepository.findByCreatedBy(user.getId(), pageable);
+        Page<Poll> polls = findPollsVotedBy(user, page, size);
+
+        // Map polls to pollresponses containing vote counts and poll creator details
+        return pagedResponse(polls, mapPolls(polls.getContent(), currentUser, null));
+    }
 
-        if (polls.getNumberOfElements() == 0) {
-            return emptyPage(polls);
+    /*
+     * Streaming variants of the feeds above: the page is fetched and its lookups are
+     * done here, the responses are only mapped while being written out. They accept
+     * pages up to MAX_STREAM_PAGE_SIZE.
+     */
+
+    public PollPageStream streamAllPolls(UserPrincipal currentUser, int page, int size) {
+        validatePageNumberAndSize(page, size, AppConstants.MAX_STREAM_PAGE_SIZE);
+
+        Page<Poll> polls = findAllPolls(page, size);
+        return new PollPageStream(polls, pageMapper(polls.getContent(), currentUser, null));
+    }
+
+    public PollPageStream streamPollsCreatedBy(String username, UserPrincipal currentUser, int page, int size) {
+        validatePageNumberAndSize(page, size, AppConstants.MAX_STREAM_PAGE_SIZE);
+
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
+
+        Page<Poll> polls = findPollsCreatedBy(user, page, size);
+        return new PollPageStream(polls, pageMapper(polls.getContent(), currentUser, user));
+    }
+
+    public PollPageStream streamPollsVotedBy(String username, UserPrincipal currentUser, int page, int size) {
+        validatePageNumberAndSize(page, size, AppConstants.MAX_STREAM_PAGE_SIZE);
+
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
+
+        Page<Poll> polls = findPollsVotedBy(user, page, size);
+        return new PollPageStream(polls, pageMapper(polls.getContent(), currentUser, null));
+    }
+
+    @Transactional(readOnly = true)
+    public PagedResponse<PollResponse> getAllPolls(UserPrincipal currentUser, String cursor, int size) {
+        validatePageSize(size);
+
+        PollCursor after = PollCursor.decode(cursor);
+        Pageable pageable = PageRequest.of(0, size);
+
+        if (projectionReads) {
+            Slice<PollRow> rows = after == null
+                    ? pollRepository.findLatestPollRows(userId(currentUser), pageable)
+                    : pollRepository.findLatestPollRowsBefore(userId(currentUser), after.getCreatedAt(), after.getId(), pageable);
+            String nextCursor = rows.hasNext()
+                    ? PollCursor.of(rows.getContent().get(rows.getNumberOfElements() - 1)).encode()
+                    : null;
+            return PagedResponse.ofCursor(mapPollRows(rows.getContent()), rows.getSize(), !rows.hasNext(), nextCursor);
         }
 
-        // Map Polls to PollResponses containing vote counts and poll creator details
-        List<Long> pollIds = polls.map(Poll::getId).getContent();
-        Map<Long, Long> choiceVoteCountMap = getChoiceVoteCountMap(pollIds);
-        Map<Long, Long> pollUserVoteMap = getPollUserVoteMap(currentUser, pollIds);
+        Slice<Poll> polls = after == null
+                ? pollRepository.findLatest(pageable)
+                : pollRepository.findLatestBefore(after.getCreatedAt(), after.getId(), pageable);
 
-        List<PollResponse> pollResponses = polls.map(poll -> ModelMapper.mapPollToPollResponse(
-                poll,
-                choiceVoteCountMap,
-                user,
-                pollUserVoteMap == null ? null : pollUserVoteMap.getOrDefault(poll.getId(), null)
-        )).getContent();
-        return new PagedResponse<>(pollResponses, polls.getNumber(), polls.getSize(), polls.getTotalElements(), polls.getTotalPages(), polls.isLast());
+        return cursorPage(polls, mapPolls(polls.getContent(), currentUser, null));
     }
 
-    public PagedResponse<PollResponse> getPollsVotedBy(String username, UserPrincipal currentUser, int page, int size) {
-        validatePageNumberAndSize(page, size);
+    @Transactional(readOnly = true)
+    public PagedResponse<PollResponse> getPollsCreatedBy(String username, UserPrincipal currentUser, String cursor, int size) {
+        validatePageSize(size);
 
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
 
-        // Retrieve all pollIds in which the given username has voted
-        Pageable pageable = PageRequest.of(page, size, Sort.Direction.DESC, "createdAt");
-        Page<Long> userVotedPollIds = voteRepository.findVotedPollIdsByUserId(user.getId(), pageable);
+        PollCursor after = PollCursor.decode(cursor);
+        Pageable pageable = PageRequest.of(0, size);
+        Slice<Poll> polls = after == null
+                ? pollRepository.findLatestByCreatedBy(user.getId(), pageable)
+                : pollRepository.findLatestByCreatedByBefore(user.getId(), after.getCreatedAt(), after.getId(), pageable);
+
+        return cursorPage(polls, mapPolls(polls.getContent(), currentUser, user));
+    }
+
+    @Transactional(readOnly = true)
+    public PagedResponse<PollResponse> getPollsVotedBy(String username, UserPrincipal currentUser, String cursor, int size) {
+        validatePageSize(size);
+
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
+
+        PollCursor after = PollCursor.decode(cursor);
+        Pageable pageable = PageRequest.of(0, size);
+        Slice<Number> pollIds = after == null
+                ? voteRepository.findLatestVotedPollIdsByUserId(user.getId(), pageable)
+                : voteRepository.findLatestVotedPollIdsByUserIdBefore(user.getId(), after.getCreatedAt(), after.getId(), pageable);
+        Slice<Poll> polls = new SliceImpl<>(findVotedPolls(pollIds.getContent()), pageable, pollIds.hasNext());
+
+        return cursorPage(polls, mapPolls(polls.getContent(), currentUser, null));
+    }
+
+    @Transactional(readOnly = true)
+    public PollResponse getPollById(Long pollId, UserPrincipal currentUser) {
+        PollResponse pollResponse = pollResponseCache.get(pollId, this::loadPollResponse);
 
-        if (userVotedPollIds.getNumberOfElements() == 0) {
-            return emptyPage(userVotedPollIds);
+        // Retrieve vote count by logged in user
+        if (currentUser == null) {
+            return pollResponse;
         }
+        Long selectedChoice = null;
+        if (pollResponse.getClosedDateTime() != null) {
+            // The votes of closed polls end up in the archive
+            selectedChoice = archivedVoteRepository.findChoiceIdByUserIdAndPollId(currentUser.getId(), pollId);
+        }
+        if (selectedChoice == null) {
+            Vote userVote = voteRepository.findByUserIdAndPollId(currentUser.getId(), pollId);
+            selectedChoice = userVote != null ? userVote.getChoice().getId() : null;
+        }
+        if (selectedChoice == null) {
+            return pollResponse;
+        }
+        return pollResponse.toBuilder()
+                .selectedChoice(selectedChoice)
+                .build();
+    }
+
+    private PollResponse loadPollResponse(Long pollId) {
+        Poll poll = pollRepository.findById(pollId)
+                .orElseThrow(() -> new ResourceNotFoundException("Poll", "id", pollId));
+
+        // Retrieve poll creator details
+        User creator = userRepository.findById(poll.getCreatedBy())
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", poll.getCreatedBy()));
+
+        return mappingTimer.record(() ->
+                ModelMapper.mapPollToPollResponse(poll, voteTallyEngine, ModelMapper.mapUserToUserSummary(creator), null, Instant.now()));
+    }
+
+    @Transactional
+    public Poll createPoll(PollRequest pollRequest, UserPrincipal currentUser) {
+        Poll poll = new Poll();
+        poll.setQuestion(pollRequest.getQuestion());
+
+        pollRequest.getChoices()
+                .forEach(choiceRequest -> poll.addChoice(new Choice(choiceRequest.getText())));
+
+        Instant now = Instant.now();
+        Instant expirationDateTime = now
+                .plus(Duration.ofDays(pollRequest.getPollLength().getDays()));
+        poll.setExpirationDateTime(expirationDateTime);
+
+        Poll result = pollRepository.save(poll);
+        userRepository.incrementPollCount(currentUser.getId());
+        eventPublisher.publishEvent(new PollCreatedEvent(result.getId()));
+        return result;
+    }
+
+    /**
+     * Casts the vote, or returns the poll with the vote already cast when the user
+     * voted on it before. Duplicate requests running at the same time share one write.
+     */
+    public PollResponse castVote(Long pollId, VoteRequest voteRequest, UserPrincipal currentUser) {
+        return voteInFlightGuard.run(currentUser.getId(), pollId, () -> {
+            try {
+                return voteTransaction.execute(status -> writeVote(pollId, voteRequest, currentUser));
+            } catch (DataIntegrityViolationException e) {
+                if (!isDuplicateVote(e)) {
+                    throw e;
+                }
+                // Lost a race with a vote handled elsewhere, the unique key kept the first one
+                logger.debug("Duplicate vote of user {} on poll {}", currentUser.getId(), pollId);
+                return getPollById(pollId, currentUser);
+            }
+        });
+    }
+
+    // Other violations (a choice or user deleted meanwhile...) are real failures
+    private static boolean isDuplicateVote(DataIntegrityViolationException e) {
+        String constraint = null;
+        if (e.getCause() instanceof ConstraintViolationException) {
+            constraint = ((ConstraintViolationException) e.getCause()).getConstraintName();
+        }
+        if (constraint == null) {
+            constraint = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        }
+        return constraint != null
+                && constraint.toLowerCase(Locale.ROOT).contains(Vote.USER_POLL_CONSTRAINT);
+    }
+
+    private PollResponse writeVote(Long pollId, VoteRequest voteRequest, UserPrincipal currentUser) {
+        Poll poll = pollRepository.findById(pollId)
+                .orElseThrow(() -> new ResourceNotFoundException("Poll", "id", pollId));
+
+        if (poll.isClosed() || poll.getExpirationDateTime().isBefore(Instant.now())) {
+            throw new BadRequestException("Sorry! This poll has already expired!");
+        }
+
+        // A vote still waiting for the writer is not part of the tallies yet. Looked up before the
+        // votes table, the writer only forgets it once the vote is committed
+        if (voteIngestionPipeline.isEnabled()) {
+            PendingVote pendingVote = voteIngestionPipeline.findPending(currentUser.getId(), pollId);
+            if (pendingVote != null) {
+                return mapUncountedVote(poll, pendingVote.getChoiceId());
+            }
+        }
+
+        // A vote already written is part of the tallies, answer with it as is
+        Vote existingVote = voteRepository.findByUserIdAndPollId(currentUser.getId(), pollId);
+        if (existingVote != null) {
+            return mapVotedPoll(poll, voteTallyEngine, existingVote.getChoice().getId());
+        }
+
+        Choice selectedChoice = poll.getChoices().stream()
+                .filter(choice -> Objects.equals(choice.getId(), voteRequest.getChoiceId()))
+                .findAny()
+                .orElseThrow(() -> new ResourceNotFoundException("Choice", "id", voteRequest.getChoiceId()));
+
+        if (voteIngestionPipeline.isEnabled()) {
+            // Acknowledge now, the vote is written and counted by the background writer. Handed over
+            // once the checks above are committed, so the writer never races this transaction; a full
+            // buffer still fails the request as the exception leaves the commit
+            PendingVote pendingVote = new PendingVote(pollId, selectedChoice.getId(), currentUser.getId());
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    voteIngestionPipeline.submit(pendingVote);
+                }
+            });
+        } else {
+            Vote vote = new Vote();
+            vote.setPoll(poll);
+            vote.setUser(userRepository.getOne(currentUser.getId()));
+            vote.setChoice(selectedChoice);
+            voteRepository.save(vote);
+            choiceRepository.incrementVoteCount(selectedChoice.getId());
+            userRepository.incrementVoteCount(currentUser.getId());
+
+            // Tallies are only bumped once the transaction commits
+            eventPublisher.publishEvent(new VoteCastEvent(pollId, selectedChoice.getId(), currentUser.getId()));
+        }
+
+        //-- Vote Saved, Return the updated Poll Response now --
+
+        return mapUncountedVote(poll, selectedChoice.getId());
+    }
+
+    // The vote is not part of the tallies yet, add it to the response ourselves
+    private PollResponse mapUncountedVote(Poll poll, Long selectedChoiceId) {
+        VoteCountLookup voteCounts = choiceId ->
+                voteTallyEngine.getVoteCount(choiceId) + (choiceId.equals(selectedChoiceId) ? 1 : 0);
+
+        return mapVotedPoll(poll, voteCounts, selectedChoiceId);
+    }
+
+    private PollResponse mapVotedPoll(Poll poll, VoteCountLookup voteCounts, Long selectedChoiceId) {
+        User creator = userRepository.findById(poll.getCreatedBy())
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", poll.getCreatedBy()));
+
+        return mappingTimer.record(() ->
+                ModelMapper.mapPollToPollResponse(poll, voteCounts, ModelMapper.mapUserToUserSummary(creator), selectedChoiceId, Instant.now()));
+    }
+
+    private Page<Poll> findAllPolls(int page, int size) {
+        Pageable pageable = PageRequest.of(page, size, Sort.Direction.DESC, "createdAt");
+        return pollRepository.findAll(pageable);
+    }
+
+    private Page<Poll> findPollsCreatedBy(User user, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size, Sort.Direction.DESC, "createdAt");
+        return pollRepository.findByCreatedBy(user.getId(), pageable);
+    }
+
+    private Page<Poll> findPollsVotedBy(User user, int page, int size) {
+        // Retrieve all pollIds in which the given username has voted, newest poll first
+        Pageable pageable = PageRequest.of(page, size);
+        Page<Number> userVotedPollIds = voteRepository.findVotedPollIdsByUserId(user.getId(), pageable);
 
         // Retrieve all poll details from the voted pollIds
-        List<Long> pollIds = userVotedPollIds.getContent();
+        List<Poll> polls = findVotedPolls(userVotedPollIds.getContent());
+        return new PageImpl<>(polls, pageable, userVotedPollIds.getTotalElements());
+    }
 
-        Sort sort = new Sort(Sort.Direction.DESC, "createdAt");
-        List<Poll> polls = pollRepository.findByIdIn(pollIds, sort);
+    private List<Poll> findVotedPolls(List<Number> pollIds) {
+        if (pollIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = pollIds.stream()
+                .map(Number::longValue)
+                .collect(Collectors.toList());
+        Sort sort = new Sort(Sort.Direction.DESC, "createdAt", "id");
+        return pollRepository.findByIdIn(ids, sort);
+    }
 
-        // Map polls to pollresponses containing vote counts and poll creator details
-        Map<Long, Long> choiceVoteCountMap = getChoiceVoteCountMap(pollIds);
-        Map<Long, Long> getPolluserVoteMap = getPollUserVoteMap(currentUser, pollIds);
-        Map<Long, User> createorMap = getPollCreatorMap(polls);
+    private List<PollResponse> mapPolls(List<Poll> polls, UserPrincipal currentUser, User creator) {
+        if (polls.isEmpty()) {
+            return Collections.emptyList();
+        }
 
-        List<PollResponse> pollResponses = polls.stream()
-                .map(poll -> ModelMapper.mapPollToPollResponse(
-                        poll,
-                        choiceVoteCountMap,
-                        createorMap.get(poll.getCreatedBy()),
-                        getPolluserVoteMap == null ? null : getPolluserVoteMap.getOrDefault(poll.getId(), null)
-                )).collect(Collectors.toList());
+        Function<Poll, PollResponse> mapper = pageMapper(polls, currentUser, creator);
+        // Timed once per page, a timer sample per poll would cost about as much as the mapping
+        return mappingTimer.record(() -> {
+            List<PollResponse> pollResponses = new ArrayList<>(polls.size());
+            for (Poll poll : polls) {
+                pollResponses.add(mapper.apply(poll));
+            }
+            return pollResponses;
+        });
+    }
 
-        return new PagedResponse<>(pollResponses, userVotedPollIds.getNumber(), userVotedPollIds.getSize(), userVotedPollIds.getTotalElements(), userVotedPollIds.getTotalPages(), userVotedPollIds.isLast());
+    /**
+     * Prepares the mapping of a page of polls. Vote counts come straight from the tally
+     * engine, the current user's votes and the creator summaries are looked up once for
+     * the whole page. Pass the creator when all the polls are known to share it.
+     */
+    private Function<Poll, PollResponse> pageMapper(List<Poll> polls, UserPrincipal currentUser, User creator) {
+        if (polls.isEmpty()) {
+            return poll -> null;
+        }
 
+        List<Long> pollIds = new ArrayList<>(polls.size());
+        List<Long> closedPollIds = new ArrayList<>();
+        for (Poll poll : polls) {
+            pollIds.add(poll.getId());
+            if (poll.isClosed()) {
+                closedPollIds.add(poll.getId());
+            }
+        }
+        if (creator != null) {
+            Map<Long, UserSummary> creatorMap =
+                    Collections.singletonMap(creator.getId(), ModelMapper.mapUserToUserSummary(creator));
+            return pageMapper(getPollUserVoteMap(currentUser, pollIds, closedPollIds), creatorMap);
+        }
+        if (currentUser == null) {
+            return pageMapper(null, getPollCreatorMap(polls));
+        }
+        // Both lookups are needed and independent, let them run concurrently when enabled
+        return parallelLookups.run(
+                () -> getPollUserVoteMap(currentUser, pollIds, closedPollIds),
+                () -> getPollCreatorMap(polls),
+                this::pageMapper);
+    }
+
+    private Function<Poll, PollResponse> pageMapper(Map<Long, Long> pollUserVoteMap, Map<Long, UserSummary> creatorMap) {
+        // One clock read for the whole page
+        Instant now = Instant.now();
+        return poll -> ModelMapper.mapPollToPollResponse(
+                poll,
+                voteTallyEngine,
+                creatorMap.get(poll.getCreatedBy()),
+                pollUserVoteMap == null ? null : pollUserVoteMap.get(poll.getId()),
+                now);
     }
 
-    private PagedResponse<PollResponse> emptyPage(Page<?> polls) {
+    /**
+     * Projection read path: polls come as flat rows with their creator and the current
+     * user's vote, choices with a second query, counts from the tally engine. No entity
+     * is loaded.
+     */
+    private List<PollResponse> mapPollRows(List<PollRow> rows) {
+        if (rows.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Long> pollIds = new ArrayList<>(rows.size());
+        for (PollRow row : rows) {
+            pollIds.add(row.getId());
+        }
+        Map<Long, List<ChoiceRow>> choicesByPoll = new HashMap<>();
+        for (ChoiceRow choice : choiceRepository.findRowsByPollIdIn(pollIds)) {
+            choicesByPoll.computeIfAbsent(choice.getPollId(), id -> new ArrayList<>()).add(choice);
+        }
+
+        return mappingTimer.record(() -> {
+            Instant now = Instant.now();
+            List<PollResponse> pollResponses = new ArrayList<>(rows.size());
+            for (PollRow row : rows) {
+                List<ChoiceRow> choices = choicesByPoll.getOrDefault(row.getId(), Collections.emptyList());
+                pollResponses.add(ModelMapper.mapPollRowToPollResponse(row, choices, voteTallyEngine, now));
+            }
+            return pollResponses;
+        });
+    }
+
+    private static Long userId(UserPrincipal currentUser) {
+        return currentUser == null ? null : currentUser.getId();
+    }
+
+    private PagedResponse<PollResponse> cursorPage(Slice<Poll> polls, List<PollResponse> pollResponses) {
+        String nextCursor = polls.hasNext()
+                ? PollCursor.of(polls.getContent().get(polls.getNumberOfElements() - 1)).encode()
+                : null;
+        return PagedResponse.ofCursor(pollResponses, polls.getSize(), !polls.hasNext(), nextCursor);
+    }
+
+    private PagedResponse<PollResponse> pagedResponse(Page<Poll> polls, List<PollResponse> pollResponses) {
         return new PagedResponse<>(
-                Collections.emptyList(), polls.getNumber(),
+                pollResponses, polls.getNumber(),
                 polls.getSize(), polls.getTotalElements(),
                 polls.getTotalPages(), polls.isLast());
     }
 
-    private void validatePageNumberAndSize(int page, int size) {
+    private void validatePageNumberAndSize(int page, int size, int maxSize) {
         if (page < 0) {
             throw new BadRequestException("Page number cannot be less than 0");
         }
 
-        if (size > AppConstants.MAX_PAGE_SIZE) {
-            throw new BadRequestException("Page size must not be greater than " + AppConstants.MAX_PAGE_SIZE);
-        }
+        validatePageSize(size, maxSize);
     }
 
-    private Map<Long, Long> getChoiceVoteCountMap(List<Long> pollIds) {
-        List<ChoiceVoteCount> votes = voteRepository.countByPollIdInGroupByChoiceId(pollIds);
+    private void validatePageSize(int size) {
+        validatePageSize(size, AppConstants.MAX_PAGE_SIZE);
+    }
 
-        return votes.stream()
-                .collect(Collectors.toMap(ChoiceVoteCount::getChoiceId, ChoiceVoteCount::getVoteCount));
+    private void validatePageSize(int size, int maxSize) {
+        if (size > maxSize) {
+            throw new BadRequestException("Page size must not be greater than " + maxSize);
+        }
     }
 
-    private Map<Long, Long> getPollUserVoteMap(UserPrincipal currentUser, List<Long> pollIds) {
+    private Map<Long, Long> getPollUserVoteMap(UserPrincipal currentUser, List<Long> pollIds, List<Long> closedPollIds) {
         Map<Long, Long> pollUserVoteMap = null;
         if (currentUser != null) {
-            List<Vote> userVotes = voteRepository.findByUserIdAndPollIdIn(currentUser.getId(), pollIds);
+            // Plain ids, no Vote entities nor lazy proxies, so this is safe on any thread
+            List<PollUserVote> userVotes = new ArrayList<>(
+                    voteRepository.findUserVotesByUserIdAndPollIdIn(currentUser.getId(), pollIds));
+            // Only closed polls can have archived votes
+            if (!closedPollIds.isEmpty()) {
+                userVotes.addAll(archivedVoteRepository.findUserVotesByUserIdAndPollIdIn(currentUser.getId(), closedPollIds));
+            }
 
             pollUserVoteMap = userVotes.stream()
-                    .collect(Collectors.toMap(
-                            vote -> vote.getPoll().getId(),
-                            vote -> vote.getChoice().getId()));
+                    .collect(Collectors.toMap(PollUserVote::getPollId, PollUserVote::getChoiceId));
         }
         return pollUserVoteMap;
     }
 
-    private Map<Long, User> getPollCreatorMap(List<Poll> polls) {
+    private Map<Long, UserSummary> getPollCreatorMap(List<Poll> polls) {
         List<Long> creatorIds = polls.stream()
                 .map(Poll::getCreatedBy)
                 .distinct()
@@ -175,6 +569,6 @@ public class PollService {
         List<User> creators = userRepository.findByIdIn(creatorIds);
 
         return creators.stream()
-                .collect(Collectors.toMap(User::getId, Function.identity()));
+                .collect(Collectors.toMap(User::getId, ModelMapper::mapUserToUserSummary));
     }
 }
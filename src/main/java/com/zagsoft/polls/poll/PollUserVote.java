@@ -0,0 +1,19 @@
+package com.zagsoft.polls.poll;
+
+public class PollUserVote {
+    private Long pollId;
+    private Long choiceId;
+
+    public PollUserVote(Long pollId, Long choiceId) {
+        this.pollId = pollId;
+        this.choiceId = choiceId;
+    }
+
+    public Long getPollId() {
+        return pollId;
+    }
+
+    public Long getChoiceId() {
+        return choiceId;
+    }
+}
@@ -0,0 +1,109 @@
+package com.zagsoft.polls.poll;
+
+import com.zagsoft.polls.config.BinaryFormatsConfig;
+import com.zagsoft.polls.security.UserPrincipal;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory versions of every poll and of the feeds, bumped once a change has been
+ * committed. They make the strong ETags of the poll reads, so that conditional GETs
+ * are answered with a 304 before anything is loaded or mapped.
+ *
+ * An ETag is made of the start time of this instance (versions start over on
+ * restart), the version, the current user since responses carry their vote, and
+ * the negotiated format (JSON, Smile or CBOR).
+ * Any vote or new poll changes the feed version, feeds only match while nothing
+ * happened at all.
+ *
+ * Versions only see the changes made through this instance. With several instances
+ * behind a load balancer an ETag handed out by one of them may still match on another
+ * after a vote went through elsewhere, so conditional reads need sticky sessions there.
+ * Whatever changes counts in the background (reconciler, finalizer) must call
+ * {@link #pollChanged(Long)} itself.
+ */
+@Component
+public class PollVersions {
+
+    // Same order as the message converters, which decides between equally acceptable types
+    private static final List<MediaType> PRODUCIBLE_TYPES = Arrays.asList(
+            MediaType.APPLICATION_JSON,
+            MediaType.valueOf(BinaryFormatsConfig.SMILE_VALUE),
+            MediaType.valueOf(BinaryFormatsConfig.CBOR_VALUE));
+
+    private final long epoch = System.currentTimeMillis();
+
+    private final ConcurrentHashMap<Long, AtomicLong> pollVersions = new ConcurrentHashMap<>();
+
+    private final AtomicLong feedVersion = new AtomicLong();
+
+    // After the tallies and the cached responses were updated, a new version must never come with old content
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVoteCast(VoteCastEvent event) {
+        pollChanged(event.getPollId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPollCreated(PollCreatedEvent event) {
+        feedVersion.incrementAndGet();
+    }
+
+    /**
+     * To be called once a change to the poll is committed and visible.
+     */
+    public void pollChanged(Long pollId) {
+        pollVersions.computeIfAbsent(pollId, id -> new AtomicLong()).incrementAndGet();
+        feedVersion.incrementAndGet();
+    }
+
+    public boolean pollNotModified(ServletWebRequest request, Long pollId, UserPrincipal currentUser) {
+        AtomicLong version = pollVersions.get(pollId);
+        return notModified(request, version == null ? 0 : version.get(), currentUser);
+    }
+
+    public boolean feedNotModified(ServletWebRequest request, UserPrincipal currentUser) {
+        return notModified(request, feedVersion.get(), currentUser);
+    }
+
+    private boolean notModified(ServletWebRequest request, long version, UserPrincipal currentUser) {
+        request.getResponse().setHeader(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION + ", " + HttpHeaders.ACCEPT);
+        String eTag = "\"" + epoch + "-" + version + "-" + (currentUser == null ? 0 : currentUser.getId())
+                + "-" + format(request.getHeader(HttpHeaders.ACCEPT)) + "\"";
+        return request.checkNotModified(eTag);
+    }
+
+    // Strong ETags are per representation: the type the content negotiation will pick,
+    // i.e. the first producible type compatible with the accepted types by quality
+    private static String format(String accept) {
+        if (accept == null) {
+            return MediaType.APPLICATION_JSON.getSubtype();
+        }
+        List<MediaType> acceptedTypes;
+        try {
+            acceptedTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_JSON.getSubtype();
+        }
+        MediaType.sortBySpecificityAndQuality(acceptedTypes);
+        for (MediaType acceptedType : acceptedTypes) {
+            for (MediaType producibleType : PRODUCIBLE_TYPES) {
+                if (acceptedType.getQualityValue() > 0 && acceptedType.isCompatibleWith(producibleType)) {
+                    return producibleType.getSubtype();
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON.getSubtype();
+    }
+}
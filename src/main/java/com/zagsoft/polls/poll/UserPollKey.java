@@ -0,0 +1,29 @@
+package com.zagsoft.polls.poll;
+
+import java.util.Objects;
+
+/**
+ * A user and a poll, for the maps that allow one vote of a user on a poll at a time.
+ */
+final class UserPollKey {
+    private final Long userId;
+    private final Long pollId;
+
+    UserPollKey(Long userId, Long pollId) {
+        this.userId = userId;
+        this.pollId = pollId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UserPollKey key = (UserPollKey) o;
+        return userId.equals(key.userId) && pollId.equals(key.pollId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, pollId);
+    }
+}
@@ -5,8 +5,13 @@ import com.zagsoft.polls.user.User;
 import javax.persistence.*;
 
 @Entity
-@Table(name = "votes")
+@Table(name = "votes", uniqueConstraints = {
+        // One vote per user and poll, see VoteInFlightGuard
+        @UniqueConstraint(name = Vote.USER_POLL_CONSTRAINT, columnNames = {"user_id", "poll_id"})
+})
 public class Vote {
+    public static final String USER_POLL_CONSTRAINT = "uk_votes_user_poll";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -0,0 +1,122 @@
+package com.zagsoft.polls.poll;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves the votes of closed polls from the votes table to vote_archive, so that the
+ * hot table only grows with the open polls. The counts of a closed poll are final
+ * and stored with its choices, the archive only keeps which choice each user picked.
+ *
+ * Votes are moved in small chunks, each copied and deleted in its own transaction.
+ * A poll is marked archived once its last chunk is gone.
+ */
+@Component
+public class VoteArchiver {
+
+    private static final Logger logger = LogManager.getLogger(VoteArchiver.class);
+
+    private static final String FIND_POLLS_TO_ARCHIVE = "SELECT id FROM polls " +
+            "WHERE closed_at IS NOT NULL AND closed_at < ? AND votes_archived_at IS NULL AND id > ? " +
+            "ORDER BY id LIMIT ?";
+
+    private static final String FIND_VOTES = "SELECT id, user_id, choice_id FROM votes WHERE poll_id = ? ORDER BY id LIMIT ?";
+
+    private static final String INSERT_ARCHIVED_VOTE = "INSERT INTO vote_archive (poll_id, user_id, choice_id) VALUES (?, ?, ?)";
+
+    private static final String DELETE_VOTE = "DELETE FROM votes WHERE id = ?";
+
+    private static final String MARK_ARCHIVED = "UPDATE polls SET votes_archived_at = ? WHERE id = ?";
+
+    @Value("${app.votes.archive.minAgeMs:86400000}")
+    private long minAgeMs;
+
+    @Value("${app.votes.archive.chunkSize:1000}")
+    private int chunkSize;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong archivedVotes = new AtomicLong();
+
+    @Autowired
+    public VoteArchiver(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Polls stay in the hot table for minAgeMs after closing, their pages are still read a lot
+    @Scheduled(initialDelayString = "${app.votes.archive.intervalMs:3600000}",
+            fixedDelayString = "${app.votes.archive.intervalMs:3600000}")
+    public void archive() {
+        Timestamp closedBefore = Timestamp.from(Instant.now().minusMillis(minAgeMs));
+        long archivedPolls = 0;
+        long lastPollId = 0;
+        List<Long> pollIds;
+        do {
+            pollIds = jdbcTemplate.queryForList(FIND_POLLS_TO_ARCHIVE, Long.class, closedBefore, lastPollId, chunkSize);
+            for (Long pollId : pollIds) {
+                archive(pollId);
+                archivedPolls++;
+                lastPollId = pollId;
+            }
+        } while (pollIds.size() == chunkSize);
+
+        logger.info("Vote archiving done, {} polls archived", archivedPolls);
+    }
+
+    public long getArchivedVotes() {
+        return archivedVotes.get();
+    }
+
+    private void archive(Long pollId) {
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> moveChunk(pollId));
+            archivedVotes.addAndGet(moved);
+        } while (moved == chunkSize);
+
+        jdbcTemplate.update(MARK_ARCHIVED, Timestamp.from(Instant.now()), pollId);
+    }
+
+    private int moveChunk(Long pollId) {
+        List<ArchivedRow> votes = jdbcTemplate.query(FIND_VOTES,
+                (rs, rowNum) -> new ArchivedRow(rs.getLong("id"), rs.getLong("user_id"), rs.getLong("choice_id")),
+                pollId, chunkSize);
+        if (votes.isEmpty()) {
+            return 0;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_ARCHIVED_VOTE, votes, votes.size(), (ps, vote) -> {
+            ps.setLong(1, pollId);
+            ps.setLong(2, vote.userId);
+            ps.setLong(3, vote.choiceId);
+        });
+        jdbcTemplate.batchUpdate(DELETE_VOTE, votes, votes.size(), (ps, vote) -> ps.setLong(1, vote.voteId));
+        return votes.size();
+    }
+
+    private static class ArchivedRow {
+        private final long voteId;
+        private final long userId;
+        private final long choiceId;
+
+        private ArchivedRow(long voteId, long userId, long choiceId) {
+            this.voteId = voteId;
+            this.userId = userId;
+            this.choiceId = choiceId;
+        }
+    }
+}
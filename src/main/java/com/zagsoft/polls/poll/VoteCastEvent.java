@@ -0,0 +1,29 @@
+package com.zagsoft.polls.poll;
+
+/**
+ * Published whenever a vote is written. Listeners that keep derived state
+ * (tallies, caches...) should only react once the vote has been committed.
+ */
+public class VoteCastEvent {
+    private final Long pollId;
+    private final Long choiceId;
+    private final Long userId;
+
+    public VoteCastEvent(Long pollId, Long choiceId, Long userId) {
+        this.pollId = pollId;
+        this.choiceId = choiceId;
+        this.userId = userId;
+    }
+
+    public Long getPollId() {
+        return pollId;
+    }
+
+    public Long getChoiceId() {
+        return choiceId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
@@ -0,0 +1,9 @@
+package com.zagsoft.polls.poll;
+
+/**
+ * Source of the number of votes of a choice, used when mapping polls to responses.
+ */
+@FunctionalInterface
+public interface VoteCountLookup {
+    long getVoteCount(Long choiceId);
+}
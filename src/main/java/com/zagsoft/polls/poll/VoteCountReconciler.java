@@ -0,0 +1,132 @@
+package com.zagsoft.polls.poll;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Recomputes the vote counts of every choice of the open polls from the votes table
+ * and repairs the denormalized counters when they drifted. Closed polls were
+ * recounted once when finalized and are left alone. Polls are walked in small chunks,
+ * each in its own short transaction, so the job never holds long locks.
+ */
+@Component
+public class VoteCountReconciler {
+
+    private static final Logger logger = LogManager.getLogger(VoteCountReconciler.class);
+
+    @Value("${app.votes.reconcile.chunkSize:200}")
+    private int chunkSize;
+
+    private final PollRepository pollRepository;
+    private final VoteRepository voteRepository;
+    private final ChoiceRepository choiceRepository;
+    private final VoteTallyEngine voteTallyEngine;
+    private final PollResponseCache pollResponseCache;
+    private final PollVersions pollVersions;
+    private final PollResultsPublisher pollResultsPublisher;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+
+    @Autowired
+    public VoteCountReconciler(PollRepository pollRepository,
+                               VoteRepository voteRepository,
+                               ChoiceRepository choiceRepository,
+                               VoteTallyEngine voteTallyEngine,
+                               PollResponseCache pollResponseCache,
+                               PollVersions pollVersions,
+                               PollResultsPublisher pollResultsPublisher,
+                               PlatformTransactionManager transactionManager) {
+        this.pollRepository = pollRepository;
+        this.voteRepository = voteRepository;
+        this.choiceRepository = choiceRepository;
+        this.voteTallyEngine = voteTallyEngine;
+        this.pollResponseCache = pollResponseCache;
+        this.pollVersions = pollVersions;
+        this.pollResultsPublisher = pollResultsPublisher;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${app.votes.reconcile.initialDelayMs:60000}",
+            fixedDelayString = "${app.votes.reconcile.intervalMs:3600000}")
+    public void reconcile() {
+        long repaired = 0;
+        Long lastPollId = 0L;
+        List<Long> pollIds;
+        do {
+            pollIds = pollRepository.findOpenIdsAfter(lastPollId, PageRequest.of(0, chunkSize));
+            if (!pollIds.isEmpty()) {
+                repaired += reconcile(pollIds);
+                lastPollId = pollIds.get(pollIds.size() - 1);
+            }
+        } while (pollIds.size() == chunkSize);
+
+        logger.info("Vote count reconciliation done, {} choices repaired", repaired);
+    }
+
+    private int reconcile(List<Long> pollIds) {
+        // Read the counters before the votes: a vote landing in between then shows up
+        // as a mismatch whose conditional repair is a no-op, never as a bogus repair
+        Snapshot snapshot = readTransaction.execute(status -> new Snapshot(
+                choiceRepository.findVoteCountsByPollIdIn(pollIds),
+                toMap(voteRepository.countByPollIdInGroupByChoiceId(pollIds))));
+        Map<Long, Long> actualCounts = snapshot.actualCounts;
+
+        Set<Long> repairedPolls = new HashSet<>();
+        int repaired = 0;
+        for (ChoiceVoteCount stored : snapshot.storedCounts) {
+            Long choiceId = stored.getChoiceId();
+            long expected = stored.getVoteCount();
+            long actual = actualCounts.getOrDefault(choiceId, 0L);
+            if (expected == actual) {
+                continue;
+            }
+
+            Integer updated = writeTransaction.execute(status ->
+                    choiceRepository.repairVoteCount(choiceId, expected, actual));
+            if (updated != null && updated > 0) {
+                voteTallyEngine.adjust(choiceId, actual - expected);
+                repairedPolls.add(stored.getPollId());
+                logger.warn("Repaired vote count of choice {} from {} to {}", choiceId, expected, actual);
+                repaired++;
+            }
+        }
+
+        // Cached responses, ETags and live results of the repaired polls would keep showing the drifted counts
+        for (Long pollId : repairedPolls) {
+            pollResponseCache.invalidate(pollId);
+            pollVersions.pollChanged(pollId);
+            pollResultsPublisher.markDirty(pollId);
+        }
+        return repaired;
+    }
+
+    private static class Snapshot {
+        private final List<ChoiceVoteCount> storedCounts;
+        private final Map<Long, Long> actualCounts;
+
+        private Snapshot(List<ChoiceVoteCount> storedCounts, Map<Long, Long> actualCounts) {
+            this.storedCounts = storedCounts;
+            this.actualCounts = actualCounts;
+        }
+    }
+
+    private static Map<Long, Long> toMap(List<ChoiceVoteCount> counts) {
+        return counts.stream()
+                .collect(Collectors.toMap(ChoiceVoteCount::getChoiceId, ChoiceVoteCount::getVoteCount));
+    }
+}
@@ -0,0 +1,69 @@
+package com.zagsoft.polls.poll;
+
+import com.zagsoft.polls.payload.PollResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent votes of a user on the same poll (double clicks, client
+ * retries) into a single write. The first request registers a future for its
+ * (user, poll) pair and writes the vote, requests arriving meanwhile wait for that
+ * future and return its response instead of racing into the unique key.
+ *
+ * Requests arriving after the write are answered from the votes table, or with
+ * write-behind from {@link VoteIngestionPipeline#findPending}. Only covers requests
+ * handled by this instance, the unique key on votes stays the authority across instances.
+ */
+@Component
+public class VoteInFlightGuard {
+
+    private final ConcurrentHashMap<UserPollKey, CompletableFuture<PollResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder collapsedVotes = new LongAdder();
+
+    public PollResponse run(Long userId, Long pollId, Supplier<PollResponse> vote) {
+        UserPollKey key = new UserPollKey(userId, pollId);
+        CompletableFuture<PollResponse> own = new CompletableFuture<>();
+        CompletableFuture<PollResponse> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            collapsedVotes.increment();
+            return await(running);
+        }
+
+        try {
+            PollResponse response = vote.get();
+            own.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    public long getCollapsedVotes() {
+        return collapsedVotes.sum();
+    }
+
+    public int getInFlightVotes() {
+        return inFlight.size();
+    }
+
+    private static PollResponse await(CompletableFuture<PollResponse> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            // Same failure as the request that did the write (expired poll, unknown choice...)
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.zagsoft.polls.poll;
+
+import com.zagsoft.polls.exception.ServiceUnavailableException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in write-behind mode for votes. Validated votes are put on a bounded buffer
+ * and acknowledged straight away; a single writer thread drains the buffer and
+ * inserts the votes in JDBC batches. When the buffer is full new votes are
+ * refused with a 503 so that clients back off.
+ *
+ * Votes are tracked by user and poll until they are committed or dropped, so a
+ * repeated vote is answered from the pending one instead of being queued again.
+ *
+ * Votes still in the buffer are flushed on shutdown, but are lost if the process
+ * dies, so only turn this on when that trade-off is acceptable.
+ */
+@Component
+public class VoteIngestionPipeline {
+
+    private static final Logger logger = LogManager.getLogger(VoteIngestionPipeline.class);
+
+    private static final String INSERT_VOTE = "INSERT INTO votes (poll_id, choice_id, user_id) VALUES (?, ?, ?)";
+
+    private static final String INCREMENT_VOTE_COUNT = "UPDATE choices SET vote_count = vote_count + ? WHERE id = ?";
+
+    private static final String INCREMENT_USER_VOTE_COUNT = "UPDATE users SET vote_count = vote_count + ? WHERE id = ?";
+
+    private static final long RETRY_BACKOFF_MS = 1000;
+
+    @Value("${app.votes.writeBehind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.votes.writeBehind.capacity:10000}")
+    private int capacity;
+
+    @Value("${app.votes.writeBehind.batchSize:500}")
+    private int batchSize;
+
+    @Value("${app.votes.writeBehind.flushIntervalMs:200}")
+    private long flushIntervalMs;
+
+    @Value("${app.votes.writeBehind.shutdownTimeoutMs:30000}")
+    private long shutdownTimeoutMs;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicLong flushedVotes = new AtomicLong();
+    private final AtomicLong rejectedVotes = new AtomicLong();
+    private final AtomicLong droppedVotes = new AtomicLong();
+
+    private final ConcurrentHashMap<UserPollKey, PendingVote> pendingByUserPoll = new ConcurrentHashMap<>();
+
+    private BlockingQueue<PendingVote> buffer;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile PendingVote oldestInFlight;
+    private volatile long lastFlushLagMs;
+
+    @Autowired
+    public VoteIngestionPipeline(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        buffer = new ArrayBlockingQueue<>(capacity);
+        running = true;
+        writer = new Thread(this::drain, "vote-writer");
+        writer.start();
+        logger.info("Vote write-behind enabled with capacity {} and batch size {}", capacity, batchSize);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(shutdownTimeoutMs);
+        if (writer.isAlive()) {
+            logger.error("Vote writer did not finish in time, {} votes were not written", getPendingVotes());
+            writer.interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void submit(PendingVote vote) {
+        UserPollKey key = keyOf(vote);
+        if (pendingByUserPoll.putIfAbsent(key, vote) != null) {
+            // Already waiting to be written, a second insert would only trip the unique key
+            return;
+        }
+        if (!buffer.offer(vote)) {
+            pendingByUserPoll.remove(key, vote);
+            rejectedVotes.incrementAndGet();
+            throw new ServiceUnavailableException("Too many votes are being processed right now, please retry");
+        }
+    }
+
+    /**
+     * The vote of the user on the poll that has been acknowledged but not written yet, if any.
+     */
+    public PendingVote findPending(Long userId, Long pollId) {
+        return pendingByUserPoll.get(new UserPollKey(userId, pollId));
+    }
+
+    public int getPendingVotes() {
+        return buffer == null ? 0 : buffer.size();
+    }
+
+    /**
+     * Age of the oldest vote that has been acknowledged but not yet written.
+     */
+    public long getFlushLagMs() {
+        PendingVote oldest = oldestInFlight;
+        if (oldest == null && buffer != null) {
+            oldest = buffer.peek();
+        }
+        return oldest == null ? 0 : System.currentTimeMillis() - oldest.getEnqueuedAt();
+    }
+
+    /**
+     * How long the votes of the last flushed batch waited before being committed.
+     */
+    public long getLastFlushLagMs() {
+        return lastFlushLagMs;
+    }
+
+    public long getFlushedVotes() {
+        return flushedVotes.get();
+    }
+
+    public long getRejectedVotes() {
+        return rejectedVotes.get();
+    }
+
+    public long getDroppedVotes() {
+        return droppedVotes.get();
+    }
+
+    private void drain() {
+        List<PendingVote> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    PendingVote first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    buffer.drainTo(batch, batchSize - 1);
+                    oldestInFlight = first;
+                }
+                long enqueuedAt = batch.get(0).getEnqueuedAt();
+                flushedVotes.addAndGet(flush(batch));
+                lastFlushLagMs = System.currentTimeMillis() - enqueuedAt;
+                batch.clear();
+                oldestInFlight = null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Keep the batch and try again, the database is most likely unavailable
+                logger.error("Could not write {} votes, retrying", batch.size(), e);
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the batch and returns the number of votes actually inserted. Votes are
+     * removed from the batch as they are written so that a retry never inserts twice.
+     */
+    private int flush(List<PendingVote> batch) {
+        try {
+            transactionTemplate.execute(status -> {
+                insert(batch);
+                return null;
+            });
+            batch.forEach(this::release);
+            return batch.size();
+        } catch (DataIntegrityViolationException e) {
+            // One bad row fails the whole batch, write the votes one by one and drop the offenders
+            logger.warn("Vote batch rejected by the database, falling back to row by row inserts", e);
+            int written = 0;
+            Iterator<PendingVote> pending = batch.iterator();
+            while (pending.hasNext()) {
+                PendingVote vote = pending.next();
+                try {
+                    transactionTemplate.execute(status -> {
+                        insert(Collections.singletonList(vote));
+                        return null;
+                    });
+                    written++;
+                } catch (DataIntegrityViolationException rowException) {
+                    droppedVotes.incrementAndGet();
+                    logger.warn("Dropping vote of user {} on poll {}: {}",
+                            vote.getUserId(), vote.getPollId(), rowException.getMessage());
+                }
+                release(vote);
+                pending.remove();
+            }
+            return written;
+        }
+    }
+
+    private void insert(List<PendingVote> votes) {
+        jdbcTemplate.batchUpdate(INSERT_VOTE, votes, votes.size(), (ps, vote) -> {
+            ps.setLong(1, vote.getPollId());
+            ps.setLong(2, vote.getChoiceId());
+            ps.setLong(3, vote.getUserId());
+        });
+
+        Map<Long, Long> increments = new HashMap<>();
+        votes.forEach(vote -> increments.merge(vote.getChoiceId(), 1L, Long::sum));
+        increment(INCREMENT_VOTE_COUNT, increments);
+
+        Map<Long, Long> userIncrements = new HashMap<>();
+        votes.forEach(vote -> userIncrements.merge(vote.getUserId(), 1L, Long::sum));
+        increment(INCREMENT_USER_VOTE_COUNT, userIncrements);
+
+        // Delivered to the listeners once the batch commits
+        votes.forEach(vote -> eventPublisher.publishEvent(vote.toEvent()));
+    }
+
+    // Only once the vote is committed or dropped, from then on the votes table answers for it
+    private void release(PendingVote vote) {
+        pendingByUserPoll.remove(keyOf(vote), vote);
+    }
+
+    private static UserPollKey keyOf(PendingVote vote) {
+        return new UserPollKey(vote.getUserId(), vote.getPollId());
+    }
+
+    private void increment(String sql, Map<Long, Long> increments) {
+        jdbcTemplate.batchUpdate(sql, increments.entrySet(), increments.size(), (ps, increment) -> {
+            ps.setLong(1, increment.getValue());
+            ps.setLong(2, increment.getKey());
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package com.zagsoft.polls.poll;
+
+import com.zagsoft.polls.security.UserPrincipal;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the {@link VoteRateLimiter} to POST /polls/{pollId}/votes. Sits right after
+ * the JWT filter, so the user is known but nothing was read from the database for
+ * the vote yet. Rejected requests get a 429 with a Retry-After header.
+ */
+public class VoteRateLimitFilter extends OncePerRequestFilter {
+
+    private static final RequestMatcher VOTE_REQUEST = new AntPathRequestMatcher("/polls/*/votes", HttpMethod.POST.name());
+
+    private final VoteRateLimiter rateLimiter;
+
+    public VoteRateLimitFilter(VoteRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !VOTE_REQUEST.matches(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        // The remote address is the proxy's when behind one, configure the container to resolve the client's
+        long waitNanos = rateLimiter.tryAcquire(currentUserId(), request.getRemoteAddr());
+        if (waitNanos > 0) {
+            response.setHeader("Retry-After", String.valueOf(TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1));
+            response.sendError(429, "Too many votes, please slow down");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserPrincipal)) {
+            return null;
+        }
+        return ((UserPrincipal) authentication.getPrincipal()).getId();
+    }
+}
@@ -0,0 +1,117 @@
+package com.zagsoft.polls.poll;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket per user, or per remote address for unauthenticated callers, in front
+ * of the vote endpoint. Each bucket is a single timestamp updated with a CAS (the
+ * generic cell rate algorithm): the time at which the bucket will be full again.
+ * A request is allowed while that time is less than burst intervals away.
+ *
+ * Buckets live in a bounded cache and expire once they would be full anyway, so an
+ * evicted bucket is the same as a full one.
+ */
+@Component
+public class VoteRateLimiter {
+
+    private final boolean enabled;
+    private final LongSupplier clock;
+    private final Limit userLimit;
+    private final Limit addressLimit;
+
+    private final Cache<Long, AtomicLong> userBuckets;
+    private final Cache<String, AtomicLong> addressBuckets;
+
+    private final LongAdder allowedRequests = new LongAdder();
+    private final LongAdder rejectedRequests = new LongAdder();
+
+    @Autowired
+    public VoteRateLimiter(@Value("${app.votes.rateLimit.enabled:true}") boolean enabled,
+                           @Value("${app.votes.rateLimit.perMinute:30}") long perMinute,
+                           @Value("${app.votes.rateLimit.burst:10}") long burst,
+                           @Value("${app.votes.rateLimit.anonymousPerMinute:10}") long anonymousPerMinute,
+                           @Value("${app.votes.rateLimit.maxBuckets:100000}") long maxBuckets) {
+        this(enabled, perMinute, burst, anonymousPerMinute, maxBuckets, System::nanoTime);
+    }
+
+    // The clock is in nanoseconds, like System.nanoTime, and also drives the bucket expiry
+    VoteRateLimiter(boolean enabled, long perMinute, long burst, long anonymousPerMinute, long maxBuckets,
+                    LongSupplier clock) {
+        this.enabled = enabled;
+        this.clock = clock;
+        this.userLimit = new Limit(perMinute, burst);
+        this.addressLimit = new Limit(anonymousPerMinute, burst);
+        this.userBuckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(userLimit.burstNanos, TimeUnit.NANOSECONDS)
+                .ticker(clock::getAsLong)
+                .build();
+        this.addressBuckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(addressLimit.burstNanos, TimeUnit.NANOSECONDS)
+                .ticker(clock::getAsLong)
+                .build();
+    }
+
+    /**
+     * Takes a token for the user, or for the address when there is no user. Returns 0
+     * when the request may go on, otherwise how many nanoseconds to wait for a token.
+     */
+    public long tryAcquire(Long userId, String remoteAddress) {
+        if (!enabled) {
+            return 0;
+        }
+        long waitNanos = userId != null
+                ? tryAcquire(userBuckets.get(userId, id -> new AtomicLong(clock.getAsLong())), userLimit)
+                : tryAcquire(addressBuckets.get(remoteAddress, address -> new AtomicLong(clock.getAsLong())), addressLimit);
+        if (waitNanos == 0) {
+            allowedRequests.increment();
+        } else {
+            rejectedRequests.increment();
+        }
+        return waitNanos;
+    }
+
+    public long getAllowedRequests() {
+        return allowedRequests.sum();
+    }
+
+    public long getRejectedRequests() {
+        return rejectedRequests.sum();
+    }
+
+    private long tryAcquire(AtomicLong bucket, Limit limit) {
+        while (true) {
+            long now = clock.getAsLong();
+            long fullAt = bucket.get();
+            // A bucket is never fuller than full: an old timestamp counts as now
+            long newFullAt = Math.max(fullAt - now, 0) + limit.intervalNanos;
+            if (newFullAt > limit.burstNanos) {
+                return newFullAt - limit.burstNanos;
+            }
+            if (bucket.compareAndSet(fullAt, now + newFullAt)) {
+                return 0;
+            }
+        }
+    }
+
+    private static class Limit {
+        // Time for one token to come back, and for the whole bucket to refill
+        private final long intervalNanos;
+        private final long burstNanos;
+
+        private Limit(long perMinute, long burst) {
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / perMinute;
+            this.burstNanos = intervalNanos * burst;
+        }
+    }
+}
@@ -2,10 +2,12 @@ package com.zagsoft.polls.poll;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
 
 /**
@@ -23,12 +25,48 @@ public interface VoteRepository extends JpaRepository<Vote, Long> {
     @Query("SELECT v FROM Vote v WHERE v.user.id = :userId AND v.poll.id IN :pollIds")
     List<Vote> findByUserIdAndPollIdIn(@Param("userId") Long userId, @Param("pollIds") List<Long> pollIds);
 
+    @Query("SELECT NEW com.zagsoft.polls.poll.PollUserVote(v.poll.id, v.choice.id) FROM Vote v WHERE v.user.id = :userId AND v.poll.id IN :pollIds")
+    List<PollUserVote> findUserVotesByUserIdAndPollIdIn(@Param("userId") Long userId, @Param("pollIds") List<Long> pollIds);
+
     @Query("SELECT v FROM Vote v WHERE v.user.id = :userId AND v.poll.id = :pollId")
     Vote findByUserIdAndPollId(@Param("userId") Long userId, @Param("pollId") Long pollId);
 
     @Query("SELECT COUNT(v.id) FROM Vote v WHERE v.user.id = :userId")
     long countByUserId(@Param("userId") Long userId);
 
-    @Query("SELECT v.poll.id FROM Vote v WHERE v.user.id = :userId")
-    Page<Long> findVotedPollIdsByUserId(@Param("userId") Long userId, Pageable pageable);
+    // Votes of the users in both the votes and the vote_archive tables, as (user_id, count) rows
+    @Query(value = "SELECT voted.user_id, COUNT(*) FROM (" +
+            "SELECT v.user_id FROM votes v WHERE v.user_id IN :userIds " +
+            "UNION ALL SELECT a.user_id FROM vote_archive a WHERE a.user_id IN :userIds" +
+            ") voted GROUP BY voted.user_id",
+            nativeQuery = true)
+    List<Object[]> countWithArchiveByUserIdIn(@Param("userIds") List<Long> userIds);
+
+    /*
+     * Polls voted by a user, newest first, from both the votes and the vote_archive
+     * tables. Native as JPQL has no UNION; ids come back as whatever number type the
+     * driver uses for BIGINT.
+     */
+    String VOTED_POLLS = "SELECT p.id FROM polls p JOIN (" +
+            "SELECT v.poll_id FROM votes v WHERE v.user_id = :userId " +
+            "UNION ALL SELECT a.poll_id FROM vote_archive a WHERE a.user_id = :userId" +
+            ") voted ON voted.poll_id = p.id ";
+
+    @Query(value = VOTED_POLLS + "ORDER BY p.created_at DESC, p.id DESC",
+            countQuery = "SELECT (SELECT COUNT(*) FROM votes WHERE user_id = :userId) + " +
+                    "(SELECT COUNT(*) FROM vote_archive WHERE user_id = :userId)",
+            nativeQuery = true)
+    Page<Number> findVotedPollIdsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(value = VOTED_POLLS + "ORDER BY p.created_at DESC, p.id DESC", nativeQuery = true)
+    Slice<Number> findLatestVotedPollIdsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(value = VOTED_POLLS +
+            "WHERE p.created_at < :createdAt OR (p.created_at = :createdAt AND p.id < :id) " +
+            "ORDER BY p.created_at DESC, p.id DESC",
+            nativeQuery = true)
+    Slice<Number> findLatestVotedPollIdsByUserIdBefore(@Param("userId") Long userId,
+                                                       @Param("createdAt") Instant createdAt,
+                                                       @Param("id") Long id,
+                                                       Pageable pageable);
 }
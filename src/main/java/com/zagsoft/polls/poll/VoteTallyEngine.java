@@ -0,0 +1,65 @@
+package com.zagsoft.polls.poll;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the number of votes of every choice in memory so that reads never have
+ * to aggregate the votes table. Counters are warmed from the vote_count column of
+ * choices at startup and bumped for every committed vote.
+ */
+@Component
+public class VoteTallyEngine implements VoteCountLookup {
+
+    private static final Logger logger = LogManager.getLogger(VoteTallyEngine.class);
+
+    private final ChoiceRepository choiceRepository;
+
+    private final ConcurrentHashMap<Long, LongAdder> tallies = new ConcurrentHashMap<>();
+
+    @Autowired
+    public VoteTallyEngine(ChoiceRepository choiceRepository) {
+        this.choiceRepository = choiceRepository;
+    }
+
+    @PostConstruct
+    void warmUp() {
+        List<ChoiceVoteCount> counts = choiceRepository.findAllVoteCounts();
+        counts.forEach(count -> counter(count.getChoiceId()).add(count.getVoteCount()));
+        logger.info("Vote tallies warmed up for {} choices", counts.size());
+    }
+
+    // Runs before the other vote listeners, which read the updated tallies
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVoteCast(VoteCastEvent event) {
+        counter(event.getChoiceId()).increment();
+    }
+
+    /**
+     * Applies a correction found by the {@link VoteCountReconciler}.
+     */
+    public void adjust(Long choiceId, long delta) {
+        counter(choiceId).add(delta);
+    }
+
+    @Override
+    public long getVoteCount(Long choiceId) {
+        LongAdder counter = tallies.get(choiceId);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    private LongAdder counter(Long choiceId) {
+        return tallies.computeIfAbsent(choiceId, id -> new LongAdder());
+    }
+}
@@ -8,24 +8,29 @@ import com.zagsoft.polls.payload.SignUpRequest;
 import com.zagsoft.polls.role.Role;
 import com.zagsoft.polls.role.RoleName;
 import com.zagsoft.polls.role.RoleRepository;
+import com.zagsoft.polls.user.TakenIdentities;
 import com.zagsoft.polls.user.User;
 import com.zagsoft.polls.user.UserRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.validation.Valid;
 import java.net.URI;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @RestController
 @RequestMapping("/auth")
@@ -35,70 +40,97 @@ public class AuthenticationController {
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider tokenProvider;
+    private final TakenIdentities takenIdentities;
+    private final PasswordHashingExecutor passwordHashing;
+    private final Executor signupExecutor;
 
     @Autowired
     public AuthenticationController(AuthenticationManager authenticationManager,
                                     UserRepository userRepository,
                                     RoleRepository roleRepository,
                                     PasswordEncoder passwordEncoder,
-                                    JwtTokenProvider tokenProvider) {
+                                    JwtTokenProvider tokenProvider,
+                                    TakenIdentities takenIdentities,
+                                    PasswordHashingExecutor passwordHashing,
+                                    @Qualifier("signupExecutor") Executor signupExecutor) {
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
         this.tokenProvider = tokenProvider;
+        this.takenIdentities = takenIdentities;
+        this.passwordHashing = passwordHashing;
+        this.signupExecutor = signupExecutor;
     }
 
     private static final Logger logger = LogManager.getLogger(AuthenticationController.class);
 
     @PostMapping("/signin")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<?>> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
         logger.info(">> In sign in method");
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        loginRequest.getUsernameOrEmail(),
-                        loginRequest.getPassword()
-                )
-        );
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-
-        String jwt = tokenProvider.generateToken(authentication);
-        return ResponseEntity.ok(new JwtAuthenticationResponse(jwt));
+        // Password verification is done on the hashing pool, the token is all the client keeps
+        return passwordHashing.<ResponseEntity<?>>submit(() -> {
+            Authentication authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(
+                            loginRequest.getUsernameOrEmail(),
+                            loginRequest.getPassword()
+                    )
+            );
+
+            String jwt = tokenProvider.generateToken(authentication);
+            return ResponseEntity.ok(new JwtAuthenticationResponse(jwt));
+        });
     }
 
     @PostMapping("/signup")
-    public ResponseEntity<?> registerUser(@Valid @RequestBody SignUpRequest signUpRequest) {
+    public CompletableFuture<ResponseEntity<?>> registerUser(@Valid @RequestBody SignUpRequest signUpRequest) {
 
         logger.info(">>> in signup request");
 
-        if (userRepository.existsByUsername(signUpRequest.getUsername())) {
-            return new ResponseEntity<>(new ApiResponse(false, "Username is already taken!"),
-                    HttpStatus.BAD_REQUEST);
+        if (takenIdentities.mightBeTakenUsername(signUpRequest.getUsername())
+                && userRepository.existsByUsername(signUpRequest.getUsername())) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(new ApiResponse(false, "Username is already taken!"),
+                    HttpStatus.BAD_REQUEST));
         }
 
-        if (userRepository.existsByEmail(signUpRequest.getEmail())) {
-            return new ResponseEntity<>(new ApiResponse(false, "Email Address already in use!"),
-                    HttpStatus.BAD_REQUEST);
+        if (takenIdentities.mightBeTakenEmail(signUpRequest.getEmail())
+                && userRepository.existsByEmail(signUpRequest.getEmail())) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(new ApiResponse(false, "Email Address already in use!"),
+                    HttpStatus.BAD_REQUEST));
         }
 
+        // Built here, the request is not bound to the hashing threads
+        UriComponentsBuilder location = ServletUriComponentsBuilder
+                .fromCurrentContextPath().path("/users/{username}");
+
+        // The save waits on database connections, it must not hold a hashing thread meanwhile
+        return passwordHashing.submit(() -> passwordEncoder.encode(signUpRequest.getPassword()))
+                .thenApplyAsync(encodedPassword -> createUser(signUpRequest, encodedPassword, location), signupExecutor);
+    }
+
+    private ResponseEntity<?> createUser(SignUpRequest signUpRequest, String encodedPassword, UriComponentsBuilder location) {
         // Creating user's account
         User user = new User(signUpRequest.getName(), signUpRequest.getUsername(),
-                signUpRequest.getEmail(), signUpRequest.getPassword());
-
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+                signUpRequest.getEmail(), encodedPassword);
 
         Role userRole = roleRepository.findByName(RoleName.ROLE_USER)
                 .orElseThrow(() -> new AppException("User Role not set."));
 
         user.setRoles(Collections.singleton(userRole));
 
-        User result = userRepository.save(user);
+        User result;
+        try {
+            result = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            // Taken by a signup the filters haven't seen yet (other instance, concurrent request)
+            return new ResponseEntity<>(new ApiResponse(false, "Username or Email Address already in use!"),
+                    HttpStatus.BAD_REQUEST);
+        }
+        takenIdentities.add(result.getUsername(), result.getEmail());
 
-        URI location = ServletUriComponentsBuilder
-                .fromCurrentContextPath().path("/users/{username}")
-                .buildAndExpand(result.getUsername()).toUri();
+        URI uri = location.buildAndExpand(result.getUsername()).toUri();
 
-        return ResponseEntity.created(location).body(new ApiResponse(true, "User registered successfully"));
+        return ResponseEntity.created(uri).body(new ApiResponse(true, "User registered successfully"));
     }
 }
@@ -36,18 +36,27 @@ public class JwtTokenProvider {
     public Long getUserIdFromJwt(String token) {
         Claims claims = Jwts.parser()
                 .setSigningKey(jwtSecret)
-                .parseClaimsJwt(token)
+                .parseClaimsJws(token)
                 .getBody();
 
         return Long.parseLong(claims.getSubject());
     }
 
     public boolean validateToken(String authToken) {
+        return getUserIdFromValidJwt(authToken) != null;
+    }
+
+    /**
+     * Validates the token and extracts the user id with a single parse.
+     * Returns null when the token is not valid.
+     */
+    public Long getUserIdFromValidJwt(String authToken) {
         try {
-            Jwts.parser().setSigningKey(jwtSecret).parseClaimsJwt(authToken);
-            return true;
+            return getUserIdFromJwt(authToken);
         } catch (SignatureException se) {
             logger.error("Invalid JWT signature");
+        } catch (MalformedJwtException ex) {
+            logger.error("Invalid JWT token");
         } catch (ExpiredJwtException ex) {
             logger.error("Expired JWT token");
         } catch (UnsupportedJwtException ex) {
@@ -55,6 +64,6 @@ public class JwtTokenProvider {
         } catch (IllegalArgumentException ex) {
             logger.error("JWT claims string is empty.");
         }
-        return false;
+        return null;
     }
 }
@@ -0,0 +1,80 @@
+package com.zagsoft.polls.security;
+
+import com.zagsoft.polls.datasource.DataSourceRouting;
+import com.zagsoft.polls.exception.ServiceUnavailableException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs the CPU heavy BCrypt work (hashing on signup, verification on signin) on a
+ * pool sized to the cores instead of on request threads, so that a login storm can't
+ * starve the rest of the API. The queue is bounded: once it is full new work is
+ * refused straight away with a 503.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private static final Logger logger = LogManager.getLogger(PasswordHashingExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong rejectedTasks = new AtomicLong();
+
+    public PasswordHashingExecutor(@Value("${app.security.passwordHashing.threads:0}") int threads,
+                                   @Value("${app.security.passwordHashing.queueCapacity:100}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        logger.info("Password hashing pool of {} threads, queue capacity {}", poolSize, queueCapacity);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * Runs the task on the pool. Failures complete the future with the exception
+     * thrown by the task itself, not wrapped, so that the usual handlers apply.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Supplier<T> routedTask = DataSourceRouting.propagate(task);
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(routedTask.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedTasks.incrementAndGet();
+            throw new ServiceUnavailableException("Too many sign in requests right now, please retry", e);
+        }
+        return future;
+    }
+
+    public ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    public long getRejectedTasks() {
+        return rejectedTasks.get();
+    }
+}
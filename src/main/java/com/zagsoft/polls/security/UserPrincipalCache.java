@@ -0,0 +1,50 @@
+package com.zagsoft.polls.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zagsoft.polls.user.UserChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of the principals built for authenticated requests, so that the
+ * user and its roles are not loaded from the database on every call. Entries
+ * expire after a while and are dropped as soon as the user is saved.
+ */
+@Component
+public class UserPrincipalCache {
+
+    private final Cache<Long, UserPrincipal> principals;
+
+    public UserPrincipalCache(@Value("${app.security.principalCache.maxSize:10000}") long maxSize,
+                              @Value("${app.security.principalCache.ttlSeconds:300}") long ttlSeconds) {
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    public UserPrincipal get(Long userId, Function<Long, UserPrincipal> loader) {
+        return principals.get(userId, loader);
+    }
+
+    public void invalidate(Long userId) {
+        principals.invalidate(userId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.getUserId() != null) {
+            invalidate(event.getUserId());
+        }
+    }
+
+    public Cache<Long, UserPrincipal> getCache() {
+        return principals;
+    }
+}
@@ -0,0 +1,139 @@
+package com.zagsoft.polls.user;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Bloom filters of the usernames and emails already taken, consulted before the
+ * database by availability checks and signup. A negative answer is final, a
+ * positive one must be confirmed with a query.
+ *
+ * The filters are built at startup by walking the users table and then kept up to
+ * date on signup. They are rebuilt periodically to pick up users created by other
+ * instances and to drop deleted ones; in between, signup still relies on the
+ * unique constraints. Signups made while a rebuild walks the table are recorded and
+ * replayed into the new filters before they replace the old ones.
+ */
+@Component
+@DependsOn("entityManagerFactory") // the users table must exist before the first build
+public class TakenIdentities {
+
+    private static final Logger logger = LogManager.getLogger(TakenIdentities.class);
+
+    private static final String USERS_AFTER = "SELECT id, username, email FROM users WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final int CHUNK_SIZE = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.users.identityFilter.expectedInsertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${app.users.identityFilter.falsePositiveRate:0.01}")
+    private double falsePositiveRate;
+
+    private volatile Filters filters;
+
+    // Signups seen since the current rebuild started, null when no rebuild is running. Guarded by this
+    private List<String[]> pendingAdds;
+
+    @Autowired
+    public TakenIdentities(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void build() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${app.users.identityFilter.rebuildIntervalMs:3600000}",
+            fixedDelayString = "${app.users.identityFilter.rebuildIntervalMs:3600000}")
+    public void rebuild() {
+        long userCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+        // Leave room for the signups until the next rebuild
+        Filters rebuilt = new Filters(Math.max(expectedInsertions, userCount * 2), falsePositiveRate);
+        synchronized (this) {
+            pendingAdds = new ArrayList<>();
+        }
+
+        // Keyset walk in chunks so the result set is never held in memory whatever the driver
+        long[] lastId = {0};
+        int[] read = {0};
+        long indexed = 0;
+        try {
+            do {
+                read[0] = 0;
+                jdbcTemplate.query(USERS_AFTER, rs -> {
+                    rebuilt.add(rs.getString("username"), rs.getString("email"));
+                    lastId[0] = rs.getLong("id");
+                    read[0]++;
+                }, lastId[0], CHUNK_SIZE);
+                indexed += read[0];
+            } while (read[0] == CHUNK_SIZE);
+        } catch (RuntimeException e) {
+            // The current filters stay in use, stop recording for a rebuild that won't happen
+            synchronized (this) {
+                pendingAdds = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            // The walk may have passed the rows of these signups already
+            for (String[] identity : pendingAdds) {
+                rebuilt.add(identity[0], identity[1]);
+            }
+            pendingAdds = null;
+            filters = rebuilt;
+        }
+        logger.info("Taken usernames and emails indexed for {} users ({} bits, {} hashes per filter)",
+                indexed, rebuilt.usernames.getBitCount(), rebuilt.usernames.getHashCount());
+    }
+
+    public boolean mightBeTakenUsername(String username) {
+        return filters.usernames.mightContain(normalize(username));
+    }
+
+    public boolean mightBeTakenEmail(String email) {
+        return filters.emails.mightContain(normalize(email));
+    }
+
+    public synchronized void add(String username, String email) {
+        filters.add(username, email);
+        if (pendingAdds != null) {
+            pendingAdds.add(new String[]{username, email});
+        }
+    }
+
+    // Lookups are case insensitive in the database, so are the filters
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static class Filters {
+        private final BloomFilter usernames;
+        private final BloomFilter emails;
+
+        private Filters(long expectedInsertions, double falsePositiveRate) {
+            this.usernames = new BloomFilter(expectedInsertions, falsePositiveRate);
+            this.emails = new BloomFilter(expectedInsertions, falsePositiveRate);
+        }
+
+        private void add(String username, String email) {
+            usernames.put(normalize(username));
+            emails.put(normalize(email));
+        }
+    }
+}
@@ -3,11 +3,14 @@ package com.zagsoft.polls.user;
 import com.zagsoft.polls.audit.DateAudit;
 import com.zagsoft.polls.role.Role;
 import org.hibernate.annotations.NaturalId;
+import org.springframework.data.domain.DomainEvents;
 
 import javax.persistence.*;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Size;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -44,6 +47,11 @@ public class User extends DateAudit {
     @JoinTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id"), inverseJoinColumns = @JoinColumn(name = "role_id"))
     private Set<Role> roles = new HashSet<>();
 
+    // Denormalized, maintained in the same transaction as every poll and vote insert
+    private long pollCount;
+
+    private long voteCount;
+
     public User() {}
 
     public User(String name, String username, String email, String password) {
@@ -100,4 +108,26 @@ public class User extends DateAudit {
     public void setRoles(Set<Role> roles) {
         this.roles = roles;
     }
+
+    public long getPollCount() {
+        return pollCount;
+    }
+
+    public void setPollCount(long pollCount) {
+        this.pollCount = pollCount;
+    }
+
+    public long getVoteCount() {
+        return voteCount;
+    }
+
+    public void setVoteCount(long voteCount) {
+        this.voteCount = voteCount;
+    }
+
+    // Lets caches holding data derived from the user (e.g. principals) drop it
+    @DomainEvents
+    Collection<UserChangedEvent> domainEvents() {
+        return Collections.singletonList(new UserChangedEvent(id));
+    }
 }
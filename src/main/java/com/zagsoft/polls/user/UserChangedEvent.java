@@ -0,0 +1,16 @@
+package com.zagsoft.polls.user;
+
+/**
+ * Published by the repository every time a {@link User} is saved.
+ */
+public class UserChangedEvent {
+    private final Long userId;
+
+    public UserChangedEvent(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
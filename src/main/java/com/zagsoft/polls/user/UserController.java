@@ -1,36 +1,44 @@
 package com.zagsoft.polls.user;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zagsoft.polls.exception.ResourceNotFoundException;
 import com.zagsoft.polls.payload.PagedResponse;
 import com.zagsoft.polls.payload.PollResponse;
-import com.zagsoft.polls.poll.PollRepository;
+import com.zagsoft.polls.poll.PollPageStream;
 import com.zagsoft.polls.poll.PollService;
-import com.zagsoft.polls.poll.VoteRepository;
+import com.zagsoft.polls.poll.PollVersions;
 import com.zagsoft.polls.security.CurrentUser;
 import com.zagsoft.polls.security.UserPrincipal;
 import com.zagsoft.polls.util.AppConstants;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 public class UserController {
     private final UserRepository userRepository;
-    private final PollRepository pollRepository;
-    private final VoteRepository voteRepository;
+    private final TakenIdentities takenIdentities;
     private final PollService pollService;
+    private final PollVersions pollVersions;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public UserController(UserRepository userRepository, PollRepository pollRepository, VoteRepository voteRepository, PollService pollService) {
+    public UserController(UserRepository userRepository, TakenIdentities takenIdentities,
+                          PollService pollService, PollVersions pollVersions, ObjectMapper objectMapper) {
         this.userRepository = userRepository;
-        this.pollRepository = pollRepository;
-        this.voteRepository = voteRepository;
+        this.takenIdentities = takenIdentities;
         this.pollService = pollService;
+        this.pollVersions = pollVersions;
+        this.objectMapper = objectMapper;
     }
 
     private static final Logger logger = LogManager.getLogger(UserController.class);
@@ -41,9 +49,16 @@ public class UserController {
         return new UserSummary(currentUser.getId(), currentUser.getUsername(), currentUser.getName());
     }
 
+    @GetMapping("/user/checkUsernameAvailability")
+    public UserIdentityAvailability checkUsernameAvailability(@RequestParam(value = "username") String username) {
+        // The database is only asked when the filter can't rule the username out
+        Boolean isAvailable = !takenIdentities.mightBeTakenUsername(username) || !userRepository.existsByUsername(username);
+        return new UserIdentityAvailability(isAvailable);
+    }
+
     @GetMapping("/user/checkEmailAvailability")
     public UserIdentityAvailability checkEmailAvailability(@RequestParam(value = "email") String email) {
-        Boolean isAvailable = !userRepository.existsByEmail(email);
+        Boolean isAvailable = !takenIdentities.mightBeTakenEmail(email) || !userRepository.existsByEmail(email);
         return new UserIdentityAvailability(isAvailable);
     }
 
@@ -52,26 +67,86 @@ public class UserController {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
 
-        long pollCount = pollRepository.countByCreatedBy(user.getId());
-        long voteCount = voteRepository.countByUserId(user.getId());
-
+        // Counters are kept on the user, see UserStatsReconciler
         return new UserProfile(
-                user.getId(), user.getUsername(), user.getName(), user.getCreatedAt(), pollCount, voteCount);
+                user.getId(), user.getUsername(), user.getName(), user.getCreatedAt(), user.getPollCount(), user.getVoteCount());
     }
 
     @GetMapping("/users/{username}/polls")
     public PagedResponse<PollResponse> getPollsCreatedBy(@PathVariable(value = "username") String username,
                                                          @CurrentUser UserPrincipal currentUser,
                                                          @RequestParam(value = "page", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER) int page,
-                                                         @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size) {
+                                                         @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size,
+                                                         ServletWebRequest webRequest) {
+        if (pollVersions.feedNotModified(webRequest, currentUser)) {
+            return null;
+        }
         return pollService.getPollsCreatedBy(username, currentUser, page, size);
     }
 
+    @GetMapping(value = "/users/{username}/polls", params = {"stream=true", "!cursor"})
+    public ResponseEntity<StreamingResponseBody> streamPollsCreatedBy(@PathVariable(value = "username") String username,
+                                                                      @CurrentUser UserPrincipal currentUser,
+                                                                      @RequestParam(value = "page", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER) int page,
+                                                                      @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size,
+                                                                      ServletWebRequest webRequest) {
+        if (pollVersions.feedNotModified(webRequest, currentUser)) {
+            return null;
+        }
+        return streaming(pollService.streamPollsCreatedBy(username, currentUser, page, size));
+    }
+
+    @GetMapping(value = "/users/{username}/polls", params = "cursor")
+    public PagedResponse<PollResponse> getPollsCreatedByCursor(@PathVariable(value = "username") String username,
+                                                               @CurrentUser UserPrincipal currentUser,
+                                                               @RequestParam(value = "cursor") String cursor,
+                                                               @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size,
+                                                               ServletWebRequest webRequest) {
+        if (pollVersions.feedNotModified(webRequest, currentUser)) {
+            return null;
+        }
+        return pollService.getPollsCreatedBy(username, currentUser, cursor, size);
+    }
+
     @GetMapping("/users/{username}/votes")
     public PagedResponse<PollResponse> getPollsVotedBy(@PathVariable(value = "username") String username,
                                                        @CurrentUser UserPrincipal currentUser,
                                                        @RequestParam(value = "page", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER) int page,
-                                                       @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size) {
+                                                       @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size,
+                                                       ServletWebRequest webRequest) {
+        if (pollVersions.feedNotModified(webRequest, currentUser)) {
+            return null;
+        }
         return pollService.getPollsVotedBy(username, currentUser, page, size);
     }
+
+    @GetMapping(value = "/users/{username}/votes", params = {"stream=true", "!cursor"})
+    public ResponseEntity<StreamingResponseBody> streamPollsVotedBy(@PathVariable(value = "username") String username,
+                                                                    @CurrentUser UserPrincipal currentUser,
+                                                                    @RequestParam(value = "page", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER) int page,
+                                                                    @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size,
+                                                                    ServletWebRequest webRequest) {
+        if (pollVersions.feedNotModified(webRequest, currentUser)) {
+            return null;
+        }
+        return streaming(pollService.streamPollsVotedBy(username, currentUser, page, size));
+    }
+
+    @GetMapping(value = "/users/{username}/votes", params = "cursor")
+    public PagedResponse<PollResponse> getPollsVotedByCursor(@PathVariable(value = "username") String username,
+                                                             @CurrentUser UserPrincipal currentUser,
+                                                             @RequestParam(value = "cursor") String cursor,
+                                                             @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE) int size,
+                                                             ServletWebRequest webRequest) {
+        if (pollVersions.feedNotModified(webRequest, currentUser)) {
+            return null;
+        }
+        return pollService.getPollsVotedBy(username, currentUser, cursor, size);
+    }
+
+    private ResponseEntity<StreamingResponseBody> streaming(PollPageStream polls) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .body(out -> polls.writeTo(out, objectMapper));
+    }
 }
@@ -0,0 +1,19 @@
+package com.zagsoft.polls.user;
+
+public class UserCount {
+    private Long userId;
+    private Long count;
+
+    public UserCount(Long userId, Long count) {
+        this.userId = userId;
+        this.count = count;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getCount() {
+        return count;
+    }
+}
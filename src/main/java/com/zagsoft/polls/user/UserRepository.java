@@ -1,6 +1,10 @@
 package com.zagsoft.polls.user;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -20,4 +24,29 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Boolean existsByUsername(String username);
 
     Boolean existsByEmail(String email);
+
+    @Modifying
+    @Query("UPDATE User u SET u.pollCount = u.pollCount + 1 WHERE u.id = :userId")
+    int incrementPollCount(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE User u SET u.voteCount = u.voteCount + 1 WHERE u.id = :userId")
+    int incrementVoteCount(@Param("userId") Long userId);
+
+    @Query("SELECT NEW com.zagsoft.polls.user.UserStats(u.id, u.pollCount, u.voteCount) FROM User u WHERE u.id IN :userIds")
+    List<UserStats> findStatsByIdIn(@Param("userIds") List<Long> userIds);
+
+    // Only applies if nobody created a poll or voted since the expected counts were read
+    @Modifying
+    @Query("UPDATE User u SET u.pollCount = :actualPollCount, u.voteCount = :actualVoteCount " +
+            "WHERE u.id = :userId AND u.pollCount = :expectedPollCount AND u.voteCount = :expectedVoteCount")
+    int repairStats(@Param("userId") Long userId,
+                    @Param("expectedPollCount") long expectedPollCount,
+                    @Param("expectedVoteCount") long expectedVoteCount,
+                    @Param("actualPollCount") long actualPollCount,
+                    @Param("actualVoteCount") long actualVoteCount);
+
+    // Keyset walk over all user ids, used by background jobs
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
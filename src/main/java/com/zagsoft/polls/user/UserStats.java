@@ -0,0 +1,25 @@
+package com.zagsoft.polls.user;
+
+public class UserStats {
+    private Long userId;
+    private Long pollCount;
+    private Long voteCount;
+
+    public UserStats(Long userId, Long pollCount, Long voteCount) {
+        this.userId = userId;
+        this.pollCount = pollCount;
+        this.voteCount = voteCount;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getPollCount() {
+        return pollCount;
+    }
+
+    public Long getVoteCount() {
+        return voteCount;
+    }
+}
@@ -0,0 +1,122 @@
+package com.zagsoft.polls.user;
+
+import com.zagsoft.polls.poll.PollRepository;
+import com.zagsoft.polls.poll.VoteRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Recomputes the poll and vote counts of every user and repairs the counters kept
+ * on the users table when they drifted. Works like the VoteCountReconciler: users
+ * are walked in chunks, each read and repaired in its own short transaction.
+ */
+@Component
+public class UserStatsReconciler {
+
+    private static final Logger logger = LogManager.getLogger(UserStatsReconciler.class);
+
+    @Value("${app.users.reconcile.chunkSize:500}")
+    private int chunkSize;
+
+    private final UserRepository userRepository;
+    private final PollRepository pollRepository;
+    private final VoteRepository voteRepository;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+
+    @Autowired
+    public UserStatsReconciler(UserRepository userRepository,
+                               PollRepository pollRepository,
+                               VoteRepository voteRepository,
+                               PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.pollRepository = pollRepository;
+        this.voteRepository = voteRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${app.users.reconcile.initialDelayMs:60000}",
+            fixedDelayString = "${app.users.reconcile.intervalMs:3600000}")
+    public void reconcile() {
+        long repaired = 0;
+        Long lastUserId = 0L;
+        List<Long> userIds;
+        do {
+            userIds = userRepository.findIdsAfter(lastUserId, PageRequest.of(0, chunkSize));
+            if (!userIds.isEmpty()) {
+                repaired += reconcile(userIds);
+                lastUserId = userIds.get(userIds.size() - 1);
+            }
+        } while (userIds.size() == chunkSize);
+
+        logger.info("User stats reconciliation done, {} users repaired", repaired);
+    }
+
+    private int reconcile(List<Long> userIds) {
+        // Stored counters first, then the actual counts, see VoteCountReconciler
+        Snapshot snapshot = readTransaction.execute(status -> new Snapshot(
+                userRepository.findStatsByIdIn(userIds),
+                toMap(pollRepository.countByCreatedByInGroupByCreatedBy(userIds)),
+                countVotes(userIds)));
+
+        int repaired = 0;
+        for (UserStats stored : snapshot.storedStats) {
+            Long userId = stored.getUserId();
+            long actualPollCount = snapshot.pollCounts.getOrDefault(userId, 0L);
+            long actualVoteCount = snapshot.voteCounts.getOrDefault(userId, 0L);
+            if (stored.getPollCount() == actualPollCount && stored.getVoteCount() == actualVoteCount) {
+                continue;
+            }
+
+            Integer updated = writeTransaction.execute(status -> userRepository.repairStats(
+                    userId, stored.getPollCount(), stored.getVoteCount(), actualPollCount, actualVoteCount));
+            if (updated != null && updated > 0) {
+                logger.warn("Repaired stats of user {} from {} polls / {} votes to {} / {}", userId,
+                        stored.getPollCount(), stored.getVoteCount(), actualPollCount, actualVoteCount);
+                repaired++;
+            }
+        }
+        return repaired;
+    }
+
+    private static class Snapshot {
+        private final List<UserStats> storedStats;
+        private final Map<Long, Long> pollCounts;
+        private final Map<Long, Long> voteCounts;
+
+        private Snapshot(List<UserStats> storedStats, Map<Long, Long> pollCounts, Map<Long, Long> voteCounts) {
+            this.storedStats = storedStats;
+            this.pollCounts = pollCounts;
+            this.voteCounts = voteCounts;
+        }
+    }
+
+    // Votes of closed polls may have been moved to the archive, one statement sees both
+    // tables at once so a vote being archived is never counted twice or missed
+    private Map<Long, Long> countVotes(List<Long> userIds) {
+        Map<Long, Long> voteCounts = new HashMap<>();
+        for (Object[] row : voteRepository.countWithArchiveByUserIdIn(userIds)) {
+            voteCounts.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        return voteCounts;
+    }
+
+    private static Map<Long, Long> toMap(List<UserCount> counts) {
+        return counts.stream()
+                .collect(Collectors.toMap(UserCount::getUserId, UserCount::getCount));
+    }
+}
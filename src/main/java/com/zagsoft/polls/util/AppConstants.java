@@ -4,4 +4,5 @@ public interface AppConstants {
     String DEFAULT_PAGE_NUMBER = "0";
     String DEFAULT_PAGE_SIZE = "30";
     int MAX_PAGE_SIZE = 50;
+    int MAX_STREAM_PAGE_SIZE = 1000;
 }
@@ -2,54 +2,89 @@ package com.zagsoft.polls.util;
 
 import com.zagsoft.polls.payload.ChoiceResponse;
 import com.zagsoft.polls.payload.PollResponse;
+import com.zagsoft.polls.poll.Choice;
+import com.zagsoft.polls.poll.ChoiceRow;
 import com.zagsoft.polls.poll.Poll;
+import com.zagsoft.polls.poll.PollRow;
+import com.zagsoft.polls.poll.VoteCountLookup;
 import com.zagsoft.polls.user.User;
 import com.zagsoft.polls.user.UserSummary;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class ModelMapper {
 
     public static PollResponse mapPollToPollResponse(Poll poll, Map<Long, Long> choiceVotesMap, User creator, Long userVote) {
-        PollResponse pollResponse = PollResponse.builder()
+        return mapPollToPollResponse(
+                poll, choiceId -> choiceVotesMap.getOrDefault(choiceId, 0L), mapUserToUserSummary(creator), userVote, Instant.now());
+    }
+
+    /**
+     * Allocation-lean mapping used for pages: choices are mapped and counted in a single
+     * pass, and lookups (vote counts, creator summaries) and the time the expiration is
+     * checked against are shared by the whole page.
+     */
+    public static PollResponse mapPollToPollResponse(Poll poll, VoteCountLookup voteCounts, UserSummary creator, Long userVote, Instant now) {
+        List<Choice> choices = poll.getChoices();
+        List<ChoiceResponse> choiceResponses = new ArrayList<>(choices.size());
+        long totalVotes = 0;
+
+        // Results of closed polls are final and stored with the choices
+        boolean closed = poll.isClosed();
+        for (int i = 0; i < choices.size(); i++) {
+            Choice choice = choices.get(i);
+            long voteCount = closed ? choice.getVoteCount() : voteCounts.getVoteCount(choice.getId());
+            choiceResponses.add(new ChoiceResponse(choice.getId(), choice.getText(), voteCount));
+            totalVotes += voteCount;
+        }
+
+        return PollResponse.builder()
                 .id(poll.getId())
                 .question(poll.getQuestion())
+                .choices(choiceResponses)
+                .createdBy(creator)
                 .creationDateTime(poll.getCreatedAt())
                 .expirationDatetime(poll.getExpirationDateTime())
+                .isExpired(closed || poll.getExpirationDateTime().isBefore(now))
+                .closedDateTime(poll.getClosedAt())
+                .selectedChoice(userVote)
+                .totalVotes(totalVotes)
                 .build();
-        Instant now = Instant.now();
-
-        List<ChoiceResponse> choiceResponses = poll.getChoices().stream()
-                .map(choice -> {
-                    ChoiceResponse choiceResponse = ChoiceResponse.builder()
-                            .id(choice.getId())
-                            .text(choice.getText())
-                            .build();
-                    if (choiceVotesMap.containsKey(choice.getId())) {
-                        choiceResponse.setVoteCount(choiceVotesMap.get(choice.getId()));
-                    } else {
-                        choiceResponse.setVoteCount(0);
-                    }
-                    return choiceResponse;
-                }).collect(Collectors.toList());
-
-        pollResponse.setChoices(choiceResponses);
-
-        UserSummary creatorSummary = new UserSummary(creator.getId(), creator.getUsername(), creator.getName());
-        pollResponse.setCreatedBy(creatorSummary);
-
-        if (userVote != null) {
-            pollResponse.setSelectedChoice(userVote);
+    }
+
+    /**
+     * Same as above for the projection read path, from flat rows instead of entities.
+     */
+    public static PollResponse mapPollRowToPollResponse(PollRow poll, List<ChoiceRow> choices, VoteCountLookup voteCounts, Instant now) {
+        List<ChoiceResponse> choiceResponses = new ArrayList<>(choices.size());
+        long totalVotes = 0;
+
+        boolean closed = poll.getClosedAt() != null;
+        for (int i = 0; i < choices.size(); i++) {
+            ChoiceRow choice = choices.get(i);
+            long voteCount = closed ? choice.getVoteCount() : voteCounts.getVoteCount(choice.getChoiceId());
+            choiceResponses.add(new ChoiceResponse(choice.getChoiceId(), choice.getText(), voteCount));
+            totalVotes += voteCount;
         }
 
-        long totalVotes = pollResponse.getChoices().stream()
-                .mapToLong(ChoiceResponse::getVoteCount)
-                .sum();
-        pollResponse.setTotalVotes(totalVotes);
+        return PollResponse.builder()
+                .id(poll.getId())
+                .question(poll.getQuestion())
+                .choices(choiceResponses)
+                .createdBy(new UserSummary(poll.getCreatorId(), poll.getCreatorUsername(), poll.getCreatorName()))
+                .creationDateTime(poll.getCreatedAt())
+                .expirationDatetime(poll.getExpirationDateTime())
+                .isExpired(closed || poll.getExpirationDateTime().isBefore(now))
+                .closedDateTime(poll.getClosedAt())
+                .selectedChoice(poll.getUserVote())
+                .totalVotes(totalVotes)
+                .build();
+    }
 
-        return pollResponse;
+    public static UserSummary mapUserToUserSummary(User user) {
+        return new UserSummary(user.getId(), user.getUsername(), user.getName());
     }
 }
@@ -0,0 +1,63 @@
+-- Schema as previously generated by Hibernate (ddl-auto=update). Existing databases
+-- are baselined at this version and start with V2.
+
+CREATE TABLE roles (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(60),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_roles_name UNIQUE (name)
+);
+
+CREATE TABLE users (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    created_at DATETIME,
+    updated_at DATETIME,
+    name VARCHAR(40) NOT NULL,
+    username VARCHAR(15) NOT NULL,
+    email VARCHAR(40) NOT NULL,
+    password VARCHAR(100) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE user_roles (
+    user_id BIGINT NOT NULL,
+    role_id BIGINT NOT NULL,
+    PRIMARY KEY (user_id, role_id),
+    CONSTRAINT fk_user_roles_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_user_roles_role FOREIGN KEY (role_id) REFERENCES roles (id)
+);
+
+CREATE TABLE polls (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    created_at DATETIME,
+    updated_at DATETIME,
+    created_by BIGINT,
+    updated_by BIGINT NOT NULL,
+    question VARCHAR(140) NOT NULL,
+    expiration_date_time DATETIME NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE choices (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    text VARCHAR(40) NOT NULL,
+    poll_id BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_choices_poll FOREIGN KEY (poll_id) REFERENCES polls (id)
+);
+
+CREATE TABLE votes (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    poll_id BIGINT NOT NULL,
+    choice_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_votes_poll FOREIGN KEY (poll_id) REFERENCES polls (id),
+    CONSTRAINT fk_votes_choice FOREIGN KEY (choice_id) REFERENCES choices (id),
+    CONSTRAINT fk_votes_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+INSERT INTO roles (name) VALUES ('ROLE_USER');
+INSERT INTO roles (name) VALUES ('ROLE_ADMIN');
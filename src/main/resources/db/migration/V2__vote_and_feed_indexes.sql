@@ -0,0 +1,25 @@
+-- Denormalized counters, read instead of counting votes and polls
+ALTER TABLE choices ADD COLUMN vote_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN poll_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN vote_count BIGINT NOT NULL DEFAULT 0;
+
+-- Only the first vote of a user on a poll counts, drop any duplicate before enforcing it
+DELETE FROM votes WHERE id NOT IN (
+    SELECT id FROM (SELECT MIN(id) AS id FROM votes GROUP BY user_id, poll_id) first_votes
+);
+
+-- Counters start out right, reads use them from the first request on
+UPDATE choices SET vote_count = (SELECT COUNT(*) FROM votes v WHERE v.choice_id = choices.id);
+UPDATE users SET
+    poll_count = (SELECT COUNT(*) FROM polls p WHERE p.created_by = users.id),
+    vote_count = (SELECT COUNT(*) FROM votes v WHERE v.user_id = users.id);
+
+-- One vote per user and poll, also serves the current user's vote lookups
+ALTER TABLE votes ADD CONSTRAINT uk_votes_user_poll UNIQUE (user_id, poll_id);
+
+-- Covers the per choice counts of a poll (GROUP BY choice_id WHERE poll_id ...)
+CREATE INDEX idx_votes_poll_choice ON votes (poll_id, choice_id);
+
+-- Polls created by a user, newest first, and the global feed
+CREATE INDEX idx_polls_created_by_created_at ON polls (created_by, created_at);
+CREATE INDEX idx_polls_created_at_id ON polls (created_at, id);
@@ -0,0 +1,8 @@
+-- Written on the primary and read back from the replica to measure replication lag
+CREATE TABLE replication_heartbeat (
+  id INT NOT NULL,
+  beat_at BIGINT NOT NULL,
+  PRIMARY KEY (id)
+);
+
+INSERT INTO replication_heartbeat (id, beat_at) VALUES (1, 0);
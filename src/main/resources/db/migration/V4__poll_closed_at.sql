@@ -0,0 +1,5 @@
+-- Set when a poll is finalized, its choices then hold the final counts
+ALTER TABLE polls ADD COLUMN closed_at DATETIME;
+
+-- Open polls by deadline, for the finalizer
+CREATE INDEX idx_polls_closed_at_expiration ON polls (closed_at, expiration_date_time);
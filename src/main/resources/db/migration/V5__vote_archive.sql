@@ -0,0 +1,14 @@
+-- Votes of closed polls, moved out of votes by the archiver. No surrogate key nor
+-- foreign keys, the primary key also serves the current user's vote lookups
+CREATE TABLE vote_archive (
+    poll_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    choice_id BIGINT NOT NULL,
+    PRIMARY KEY (poll_id, user_id)
+);
+
+-- Polls voted by a user
+CREATE INDEX idx_vote_archive_user_poll ON vote_archive (user_id, poll_id);
+
+-- Set once every vote of a closed poll has been archived
+ALTER TABLE polls ADD COLUMN votes_archived_at DATETIME;
@@ -0,0 +1,57 @@
+package com.zagsoft.polls.datasource;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+		"app.datasource.replica.enabled=true",
+		"app.datasource.replica.url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+		"app.datasource.replica.migrate=true",
+		"app.datasource.replica.maxLagMs=0"
+})
+public class ReadWriteRoutingTests {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@After
+	public void clearRouting() {
+		DataSourceRouting.clear();
+	}
+
+	@Test
+	public void readOnlyTransactionsUseTheReplica() {
+		assertEquals("ROUTING-REPLICA", databaseIn(true));
+	}
+
+	@Test
+	public void readWriteTransactionsUseThePrimary() {
+		assertEquals("ROUTING-PRIMARY", databaseIn(false));
+	}
+
+	@Test
+	public void forcedPrimaryWinsOverReadOnly() {
+		DataSourceRouting.forcePrimary();
+		assertEquals("ROUTING-PRIMARY", databaseIn(true));
+	}
+
+	private String databaseIn(boolean readOnly) {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setReadOnly(readOnly);
+		return transactionTemplate.execute(status -> jdbcTemplate.queryForObject("SELECT DATABASE()", String.class));
+	}
+}
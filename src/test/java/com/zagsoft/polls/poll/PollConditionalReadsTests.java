@@ -0,0 +1,65 @@
+package com.zagsoft.polls.poll;
+
+import com.zagsoft.polls.metrics.SqlStatementCounter;
+import com.zagsoft.polls.payload.VoteRequest;
+import com.zagsoft.polls.security.UserPrincipal;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@Sql("/polls-fixture.sql")
+public class PollConditionalReadsTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private PollService pollService;
+
+	private final UserPrincipal voter = new UserPrincipal(2L, "Voter", "voter", "voter@example.com", "secret", Collections.emptyList());
+
+	@Test
+	public void matchingETagIsAnsweredWithoutQueries() throws Exception {
+		String eTag = mockMvc.perform(get("/polls/1"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotNull(eTag);
+
+		SqlStatementCounter.reset();
+		mockMvc.perform(get("/polls/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified());
+		assertEquals(0, SqlStatementCounter.get());
+	}
+
+	@Test
+	public void committedVoteChangesTheETag() throws Exception {
+		String eTag = mockMvc.perform(get("/polls/1"))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		VoteRequest voteRequest = new VoteRequest();
+		voteRequest.setChoiceId(2L);
+		pollService.castVote(1L, voteRequest, voter);
+
+		String newETag = mockMvc.perform(get("/polls/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotEquals(eTag, newETag);
+	}
+}
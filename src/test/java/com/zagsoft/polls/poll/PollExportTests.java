@@ -0,0 +1,59 @@
+package com.zagsoft.polls.poll;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+		"app.polls.export.fetchSize=2"
+})
+@Sql("/polls-fixture.sql")
+public class PollExportTests {
+
+	@Autowired
+	private PollExportService pollExportService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	public void ndjsonHasOnePollPerLine() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		pollExportService.export(PollExportFormat.NDJSON, out);
+
+		String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+		assertEquals(3, lines.length);
+		for (int i = 0; i < lines.length; i++) {
+			assertEquals('{', lines[i].charAt(0));
+			JsonNode poll = objectMapper.readTree(lines[i]);
+			assertEquals(i + 1, poll.get("id").asLong());
+			assertEquals(2, poll.get("choices").size());
+			assertEquals(i + 1, poll.get("totalVotes").asLong());
+		}
+	}
+
+	@Test
+	public void csvHasOneRowPerChoice() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		pollExportService.export(PollExportFormat.CSV, out);
+
+		String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+		assertEquals(7, lines.length);
+		assertTrue(lines[0].startsWith("poll_id,question,"));
+		assertTrue(lines[1].startsWith("1,\"Question 1, really?\",1,"));
+		assertTrue(lines[1].endsWith(",1,Yes,1"));
+		assertTrue(lines[6].endsWith(",6,No,0"));
+	}
+}
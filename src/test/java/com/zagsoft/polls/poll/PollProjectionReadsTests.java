@@ -0,0 +1,63 @@
+package com.zagsoft.polls.poll;
+
+import com.zagsoft.polls.metrics.SqlStatementCounter;
+import com.zagsoft.polls.payload.PagedResponse;
+import com.zagsoft.polls.payload.PollResponse;
+import com.zagsoft.polls.security.UserPrincipal;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+		"app.polls.projectionReads.enabled=true"
+})
+@Sql("/polls-fixture.sql")
+public class PollProjectionReadsTests {
+
+	@Autowired
+	private PollService pollService;
+
+	private final UserPrincipal voter = new UserPrincipal(2L, "Voter", "voter", "voter@example.com", "secret", Collections.emptyList());
+
+	@Test
+	public void offsetPageTakesThreeStatements() {
+		SqlStatementCounter.reset();
+		PagedResponse<PollResponse> page = pollService.getAllPolls(voter, 0, 2);
+
+		// Polls with creators and the user's votes, their choices, and the total count
+		assertEquals(3, SqlStatementCounter.get());
+		assertEquals(2, page.getContent().size());
+		assertEquals(Long.valueOf(3), page.getTotalElements());
+		assertNull(page.getContent().get(0).getSelectedChoice());
+		assertEquals("creator", page.getContent().get(0).getCreatedBy().getUsername());
+		assertEquals(2, page.getContent().get(0).getChoices().size());
+		assertEquals(Long.valueOf(3), page.getContent().get(1).getSelectedChoice());
+	}
+
+	@Test
+	public void cursorPageTakesTwoStatements() {
+		SqlStatementCounter.reset();
+		PagedResponse<PollResponse> page = pollService.getAllPolls(voter, (String) null, 2);
+
+		assertEquals(2, SqlStatementCounter.get());
+		assertEquals(2, page.getContent().size());
+		assertNotNull(page.getNextCursor());
+
+		SqlStatementCounter.reset();
+		PagedResponse<PollResponse> next = pollService.getAllPolls(null, page.getNextCursor(), 2);
+
+		assertEquals(2, SqlStatementCounter.get());
+		assertEquals(1, next.getContent().size());
+		assertEquals(Long.valueOf(3), next.getContent().get(0).getId());
+	}
+}
@@ -0,0 +1,111 @@
+package com.zagsoft.polls.poll;
+
+import com.zagsoft.polls.exception.BadRequestException;
+import com.zagsoft.polls.payload.PollResponse;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class VoteInFlightGuardTests {
+
+	private static final int FOLLOWERS = 8;
+
+	private final VoteInFlightGuard guard = new VoteInFlightGuard();
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(FOLLOWERS + 1);
+
+	private final CountDownLatch leaderStarted = new CountDownLatch(1);
+
+	private final CountDownLatch releaseLeader = new CountDownLatch(1);
+
+	private final AtomicInteger writes = new AtomicInteger();
+
+	@After
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void concurrentVotesAreWrittenOnceAndShareTheResponse() throws Exception {
+		PollResponse written = PollResponse.builder().id(1L).selectedChoice(2L).build();
+
+		List<Future<PollResponse>> responses = voteConcurrently(() -> written);
+
+		for (Future<PollResponse> response : responses) {
+			assertSame(written, response.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, writes.get());
+		assertEquals(FOLLOWERS, guard.getCollapsedVotes());
+		assertEquals(0, guard.getInFlightVotes());
+	}
+
+	@Test
+	public void followersGetTheFailureOfTheWrite() throws Exception {
+		BadRequestException failure = new BadRequestException("Sorry! This poll has already expired!");
+
+		List<Future<PollResponse>> responses = voteConcurrently(() -> {
+			throw failure;
+		});
+
+		for (Future<PollResponse> response : responses) {
+			try {
+				response.get(5, TimeUnit.SECONDS);
+				fail("The vote should have failed");
+			} catch (ExecutionException e) {
+				assertSame(failure, e.getCause());
+			}
+		}
+		assertEquals(1, writes.get());
+		assertEquals(0, guard.getInFlightVotes());
+	}
+
+	@Test
+	public void laterVotesAreNotCollapsed() {
+		guard.run(1L, 1L, () -> PollResponse.builder().id(1L).build());
+		guard.run(1L, 1L, () -> PollResponse.builder().id(1L).build());
+
+		assertEquals(0, guard.getCollapsedVotes());
+	}
+
+	// The leader holds the write until every follower joined it, then finishes with the given outcome
+	private List<Future<PollResponse>> voteConcurrently(Supplier<PollResponse> outcome) throws Exception {
+		Supplier<PollResponse> write = () -> {
+			writes.incrementAndGet();
+			leaderStarted.countDown();
+			try {
+				releaseLeader.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return outcome.get();
+		};
+
+		List<Future<PollResponse>> responses = new ArrayList<>();
+		responses.add(executor.submit(() -> guard.run(1L, 1L, write)));
+		leaderStarted.await(5, TimeUnit.SECONDS);
+		for (int i = 0; i < FOLLOWERS; i++) {
+			responses.add(executor.submit(() -> guard.run(1L, 1L, write)));
+		}
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (guard.getCollapsedVotes() < FOLLOWERS && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		releaseLeader.countDown();
+		return responses;
+	}
+}
@@ -0,0 +1,37 @@
+package com.zagsoft.polls.poll;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+		"app.votes.rateLimit.anonymousPerMinute=1",
+		"app.votes.rateLimit.burst=1"
+})
+@AutoConfigureMockMvc
+public class VoteRateLimitFilterTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	public void votesBeyondTheLimitGetTooManyRequests() throws Exception {
+		// The first one goes on and is turned down for lack of authentication
+		mockMvc.perform(post("/polls/1/votes").contentType(MediaType.APPLICATION_JSON).content("{\"choiceId\":1}"))
+				.andExpect(status().isUnauthorized());
+
+		mockMvc.perform(post("/polls/1/votes").contentType(MediaType.APPLICATION_JSON).content("{\"choiceId\":1}"))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().string("Retry-After", "60"));
+	}
+}
@@ -0,0 +1,76 @@
+package com.zagsoft.polls.poll;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+public class VoteRateLimiterTests {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private final AtomicLong now = new AtomicLong(-42 * SECOND);
+
+	// One vote per second with bursts of 3, anonymous callers one every 2 seconds
+	private final VoteRateLimiter rateLimiter = new VoteRateLimiter(true, 60, 3, 30, 1000, now::get);
+
+	@Test
+	public void burstIsExhaustedThenRejected() {
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, rateLimiter.tryAcquire(1L, "10.0.0.1"));
+		}
+		assertEquals(SECOND, rateLimiter.tryAcquire(1L, "10.0.0.1"));
+		assertEquals(3, rateLimiter.getAllowedRequests());
+		assertEquals(1, rateLimiter.getRejectedRequests());
+	}
+
+	@Test
+	public void tokensComeBackOverTime() {
+		for (int i = 0; i < 3; i++) {
+			rateLimiter.tryAcquire(1L, null);
+		}
+
+		now.addAndGet(SECOND);
+		assertEquals(0, rateLimiter.tryAcquire(1L, null));
+		assertEquals(SECOND, rateLimiter.tryAcquire(1L, null));
+
+		// A bucket left alone refills up to the burst, never beyond
+		now.addAndGet(10 * SECOND);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, rateLimiter.tryAcquire(1L, null));
+		}
+		assertEquals(SECOND, rateLimiter.tryAcquire(1L, null));
+	}
+
+	@Test
+	public void waitIsTheTimeUntilTheNextToken() {
+		for (int i = 0; i < 3; i++) {
+			rateLimiter.tryAcquire(1L, null);
+		}
+
+		now.addAndGet(SECOND / 4);
+		assertEquals(SECOND * 3 / 4, rateLimiter.tryAcquire(1L, null));
+	}
+
+	@Test
+	public void anonymousCallersAreLimitedPerAddress() {
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, rateLimiter.tryAcquire(null, "10.0.0.1"));
+		}
+		assertEquals(2 * SECOND, rateLimiter.tryAcquire(null, "10.0.0.1"));
+
+		// Other addresses and users have their own buckets
+		assertEquals(0, rateLimiter.tryAcquire(null, "10.0.0.2"));
+		assertEquals(0, rateLimiter.tryAcquire(1L, "10.0.0.1"));
+	}
+
+	@Test
+	public void disabledLimiterLetsEverythingThrough() {
+		VoteRateLimiter disabled = new VoteRateLimiter(false, 60, 3, 30, 1000, now::get);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(0, disabled.tryAcquire(1L, null));
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.zagsoft.polls.user;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class BloomFilterTests {
+
+	private static final int INSERTIONS = 100000;
+
+	@Test
+	public void neverForgetsAnAddedValue() {
+		BloomFilter filter = new BloomFilter(INSERTIONS, 0.01);
+		for (int i = 0; i < INSERTIONS; i++) {
+			filter.put("user" + i);
+		}
+		for (int i = 0; i < INSERTIONS; i++) {
+			assertTrue("user" + i, filter.mightContain("user" + i));
+		}
+	}
+
+	@Test
+	public void falsePositiveRateIsCloseToTheConfiguredOne() {
+		BloomFilter filter = new BloomFilter(INSERTIONS, 0.01);
+		for (int i = 0; i < INSERTIONS; i++) {
+			filter.put("user" + i + "@example.com");
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < INSERTIONS; i++) {
+			if (filter.mightContain("other" + i + "@example.com")) {
+				falsePositives++;
+			}
+		}
+		double rate = (double) falsePositives / INSERTIONS;
+		assertTrue("false positive rate " + rate, rate > 0.005 && rate < 0.02);
+	}
+}
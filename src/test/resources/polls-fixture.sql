@@ -0,0 +1,27 @@
+-- Shared by the poll tests: a creator with three open polls, newest first, and one
+-- vote of the voter on the second poll. The first choice of poll n has n votes.
+DELETE FROM votes;
+DELETE FROM choices;
+DELETE FROM polls;
+DELETE FROM users;
+
+INSERT INTO users (id, name, username, email, password, created_at, updated_at, poll_count, vote_count)
+VALUES (1, 'Creator', 'creator', 'creator@example.com', 'secret', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 3, 0);
+INSERT INTO users (id, name, username, email, password, created_at, updated_at, poll_count, vote_count)
+VALUES (2, 'Voter', 'voter', 'voter@example.com', 'secret', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 0, 1);
+
+INSERT INTO polls (id, question, expiration_date_time, created_by, updated_by, created_at, updated_at)
+VALUES (1, 'Question 1, really?', DATEADD('DAY', 1, CURRENT_TIMESTAMP), 1, 1, DATEADD('SECOND', -1, CURRENT_TIMESTAMP), DATEADD('SECOND', -1, CURRENT_TIMESTAMP));
+INSERT INTO polls (id, question, expiration_date_time, created_by, updated_by, created_at, updated_at)
+VALUES (2, 'Question 2, really?', DATEADD('DAY', 1, CURRENT_TIMESTAMP), 1, 1, DATEADD('SECOND', -2, CURRENT_TIMESTAMP), DATEADD('SECOND', -2, CURRENT_TIMESTAMP));
+INSERT INTO polls (id, question, expiration_date_time, created_by, updated_by, created_at, updated_at)
+VALUES (3, 'Question 3, really?', DATEADD('DAY', 1, CURRENT_TIMESTAMP), 1, 1, DATEADD('SECOND', -3, CURRENT_TIMESTAMP), DATEADD('SECOND', -3, CURRENT_TIMESTAMP));
+
+INSERT INTO choices (id, text, poll_id, vote_count) VALUES (1, 'Yes', 1, 1);
+INSERT INTO choices (id, text, poll_id, vote_count) VALUES (2, 'No', 1, 0);
+INSERT INTO choices (id, text, poll_id, vote_count) VALUES (3, 'Yes', 2, 2);
+INSERT INTO choices (id, text, poll_id, vote_count) VALUES (4, 'No', 2, 0);
+INSERT INTO choices (id, text, poll_id, vote_count) VALUES (5, 'Yes', 3, 3);
+INSERT INTO choices (id, text, poll_id, vote_count) VALUES (6, 'No', 3, 0);
+
+INSERT INTO votes (id, poll_id, choice_id, user_id) VALUES (1, 2, 3, 2);